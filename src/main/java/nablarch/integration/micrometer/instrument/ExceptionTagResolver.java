@@ -0,0 +1,83 @@
+package nablarch.integration.micrometer.instrument;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 例外クラスからメトリクスのタグに設定する値を解決するクラス。
+ * <p>
+ * タグの値は例外クラスの単純名({@link Class#getSimpleName()})になる。<br>
+ * 解決した値は例外クラスごとにキャッシュされる。
+ * </p>
+ * <p>
+ * 想定外の例外が大量に発生したときにメトリクスの数が際限なく増えないように、
+ * タグの値として使用する例外クラスの種類には上限を設けている。<br>
+ * 上限に達した後に初めて出現した例外クラスや、許可リストが設定されている場合に許可リストに含まれない例外クラスの値は、
+ * {@value #OTHER}になる。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+public class ExceptionTagResolver {
+    /** 例外クラスの単純名を使用しない場合に設定される値。 */
+    public static final String OTHER = "OTHER";
+    /** タグの値として使用する例外クラスの種類のデフォルトの上限。 */
+    public static final int DEFAULT_MAX_DISTINCT_VALUES = 100;
+
+    /** 例外クラスごとのタグの値のキャッシュ。 */
+    private final ConcurrentMap<Class<?>, String> cache = new ConcurrentHashMap<>();
+    /** タグの値として使用する例外クラスの種類の上限。 */
+    private int maxDistinctValues = DEFAULT_MAX_DISTINCT_VALUES;
+    /** 許可リスト（未設定の場合は{@code null}）。 */
+    private Set<String> allowedClassNames;
+
+    /**
+     * 例外クラスに対応するタグの値を解決する。
+     * @param exceptionClass 例外クラス
+     * @return タグの値
+     */
+    public String resolve(Class<? extends Throwable> exceptionClass) {
+        String value = cache.get(exceptionClass);
+        if (value != null) {
+            return value;
+        }
+
+        if (allowedClassNames != null && !allowedClassNames.contains(exceptionClass.getName())) {
+            return OTHER;
+        }
+        if (maxDistinctValues <= cache.size()) {
+            return OTHER;
+        }
+
+        value = exceptionClass.getSimpleName();
+        String existing = cache.putIfAbsent(exceptionClass, value);
+        return existing != null ? existing : value;
+    }
+
+    /**
+     * タグの値として使用する例外クラスの種類の上限を設定する。
+     * <p>
+     * 未設定の場合は{@value #DEFAULT_MAX_DISTINCT_VALUES}になる。
+     * </p>
+     * @param maxDistinctValues タグの値として使用する例外クラスの種類の上限
+     */
+    public void setMaxDistinctValues(int maxDistinctValues) {
+        this.maxDistinctValues = maxDistinctValues;
+        cache.clear();
+    }
+
+    /**
+     * タグの値として単純名を使用する例外クラスの完全修飾名の許可リストを設定する。
+     * <p>
+     * 許可リストを設定した場合、許可リストに含まれない例外クラスの値は{@value #OTHER}になる。<br>
+     * 未設定の場合は、全ての例外クラスが対象になる。
+     * </p>
+     * @param allowedClassNames 許可リスト
+     */
+    public void setAllowedClassNames(Collection<String> allowedClassNames) {
+        this.allowedClassNames = allowedClassNames == null ? null : new HashSet<>(allowedClassNames);
+        cache.clear();
+    }
+}
@@ -0,0 +1,197 @@
+package nablarch.integration.micrometer.instrument;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link MeterRegistry}に登録済みの{@link Meter}をキーごとに保持するキャッシュ。
+ * <p>
+ * 計測のたびに{@code Meter.Builder}を組み立てて{@link MeterRegistry}に登録しなおすと、
+ * タグのソートやレジストリ内部の検索、オブジェクトの生成が毎回発生する。<br>
+ * このクラスは一度登録した{@link Meter}をキーに紐づけて保持し、2回目以降はキャッシュから返すことで、
+ * これらのコストを省略できるようにする。
+ * </p>
+ * <p>
+ * キャッシュに保持する件数には上限があり、上限に達した後に登録された{@link Meter}はキャッシュされない
+ * （ファクトリで毎回生成したものが返される）。<br>
+ * また、{@link MeterRegistry}が閉じられた場合、および{@link MeterRegistry}から{@link Meter}が削除された場合は、
+ * 該当するキャッシュを破棄する。
+ * </p>
+ * <p>
+ * {@link Meter}の削除を検知するため、インスタンスの生成時に{@link MeterRegistry}へリスナーを登録する。<br>
+ * Micrometerには登録したリスナーを削除するAPIが無いため、リスナーはこのインスタンスを弱参照で保持し、
+ * 使われなくなったインスタンスがガベージコレクションの対象になるようにしている。<br>
+ * それでもリスナー自体は{@link MeterRegistry}に残るため、インスタンスは{@link MeterRegistry}ごとに一度だけ生成し、
+ * 設定の変更のたびに生成しなおさないこと。
+ * </p>
+ * <p>
+ * キャッシュへの格納と、削除された{@link Meter}のキャッシュの破棄は、互いに排他して行う。
+ * これにより、格納の途中で破棄が行われて、削除済みの{@link Meter}がキャッシュに残ることを防いでいる。<br>
+ * キャッシュの検索は排他せずに行う。
+ * </p>
+ * @param <K> キャッシュのキーの型
+ * @param <M> キャッシュする{@link Meter}の型
+ * @author Tanaka Tomoyuki
+ */
+public class MeterCache<K, M extends Meter> {
+    /** キャッシュする件数のデフォルトの上限。 */
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    /** キャッシュした{@link Meter}が登録されている{@link MeterRegistry}。 */
+    private final MeterRegistry meterRegistry;
+    /** キャッシュする件数の上限。 */
+    private final int maxSize;
+    /** キャッシュ本体。 */
+    private final ConcurrentMap<K, M> cache = new ConcurrentHashMap<>();
+    /** {@link Meter}のIDごとの、その{@link Meter}をキャッシュしているキー（{@code this}で排他して参照する）。 */
+    private final Map<Meter.Id, Set<K>> keysById = new HashMap<>();
+
+    /**
+     * キャッシュする件数の上限をデフォルトにしてインスタンスを生成する。
+     * @param meterRegistry キャッシュする{@link Meter}が登録される{@link MeterRegistry}
+     */
+    public MeterCache(MeterRegistry meterRegistry) {
+        this(meterRegistry, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * キャッシュする件数の上限を指定してインスタンスを生成する。
+     * @param meterRegistry キャッシュする{@link Meter}が登録される{@link MeterRegistry}
+     * @param maxSize キャッシュする件数の上限
+     */
+    public MeterCache(MeterRegistry meterRegistry, int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative. maxSize=" + maxSize);
+        }
+        this.meterRegistry = meterRegistry;
+        this.maxSize = maxSize;
+        meterRegistry.config().onMeterRemoved(removalListener(new WeakReference<>(this)));
+    }
+
+    /**
+     * {@link Meter}が削除されたときに、キャッシュを破棄するリスナーを生成する。
+     * <p>
+     * リスナーが{@link MeterCache}を強参照しないよう、static メソッドで生成している。
+     * </p>
+     * @param reference {@link MeterCache}の弱参照
+     * @param <K> キャッシュのキーの型
+     * @param <M> キャッシュする{@link Meter}の型
+     * @return リスナー
+     */
+    private static <K, M extends Meter> Consumer<Meter> removalListener(WeakReference<MeterCache<K, M>> reference) {
+        return meter -> {
+            MeterCache<K, M> meterCache = reference.get();
+            if (meterCache != null) {
+                meterCache.evict(meter.getId());
+            }
+        };
+    }
+
+    /**
+     * 指定したIDの{@link Meter}のキャッシュを破棄する。
+     * @param id {@link Meter}のID
+     */
+    private synchronized void evict(Meter.Id id) {
+        Set<K> keys = keysById.remove(id);
+        if (keys != null) {
+            for (K key : keys) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * キーに対応する{@link Meter}を取得する。
+     * <p>
+     * キャッシュに存在しない場合は、{@code factory}で{@link Meter}を生成してキャッシュに格納したうえで返す。<br>
+     * {@code factory}は、{@link MeterRegistry}に{@link Meter}を登録して返すように実装すること。
+     * </p>
+     * @param key キー
+     * @param factory キャッシュに存在しない場合に{@link Meter}を生成するファクトリ
+     * @return キーに対応する{@link Meter}
+     */
+    public M get(K key, Function<? super K, ? extends M> factory) {
+        M meter = find(key);
+        if (meter != null) {
+            return meter;
+        }
+
+        return put(key, factory.apply(key));
+    }
+
+    /**
+     * キーに対応する{@link Meter}をキャッシュに格納する。
+     * <p>
+     * 既にキャッシュに存在する場合は、キャッシュの件数が上限に達していても、キャッシュに存在する{@link Meter}を返す。<br>
+     * {@link MeterRegistry}が閉じられている場合、またはキャッシュに存在せず件数の上限に達している場合は、
+     * キャッシュに格納せずに引数の{@link Meter}をそのまま返す。
+     * </p>
+     * @param key キー
+     * @param meter {@link MeterRegistry}に登録済みの{@link Meter}
+     * @return キーに対応する{@link Meter}
+     */
+    public M put(K key, M meter) {
+        if (meterRegistry.isClosed()) {
+            return meter;
+        }
+        M existing = cache.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        synchronized (this) {
+            existing = cache.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (maxSize <= cache.size()) {
+                return meter;
+            }
+            cache.put(key, meter);
+            keysById.computeIfAbsent(meter.getId(), id -> new HashSet<>()).add(key);
+            return meter;
+        }
+    }
+
+    /**
+     * キーに対応する{@link Meter}をキャッシュから検索する。
+     * <p>
+     * {@link MeterRegistry}が閉じられている場合は、キャッシュを破棄して{@code null}を返す。
+     * </p>
+     * @param key キー
+     * @return キャッシュされている{@link Meter}（存在しない場合は{@code null}）
+     */
+    public M find(K key) {
+        if (meterRegistry.isClosed()) {
+            clear();
+            return null;
+        }
+        return cache.get(key);
+    }
+
+    /**
+     * キャッシュを破棄する。
+     */
+    public synchronized void clear() {
+        cache.clear();
+        keysById.clear();
+    }
+
+    /**
+     * キャッシュしている件数を取得する。
+     * @return キャッシュしている件数
+     */
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,56 @@
+package nablarch.integration.micrometer.instrument;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * メトリクスのタグに設定する値の種類を制限するクラス。
+ * <p>
+ * 初めて出現した値は、種類が上限に達するまではそのまま使用する。<br>
+ * 上限に達した後に初めて出現した値は{@value #OTHER}になる。
+ * </p>
+ * <p>
+ * SQLIDやメッセージIDのように、アプリケーションによって種類が大きく異なる値をタグに設定する場合に、
+ * メトリクスの数が際限なく増えないようにするために使用する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+public class TagValueLimiter {
+    /** 種類が上限に達した後に初めて出現した値の代わりに設定される値。 */
+    public static final String OTHER = "OTHER";
+    /** タグの値の種類のデフォルトの上限。 */
+    public static final int DEFAULT_MAX_DISTINCT_VALUES = 100;
+
+    /** 使用を許可した値。 */
+    private final Set<String> acceptedValues = ConcurrentHashMap.newKeySet();
+    /** タグの値の種類の上限。 */
+    private int maxDistinctValues = DEFAULT_MAX_DISTINCT_VALUES;
+
+    /**
+     * タグに設定する値を取得する。
+     * @param value 元の値
+     * @return 種類が上限に達していない、または既に出現したことのある値の場合は元の値、それ以外は{@value #OTHER}
+     */
+    public String limit(String value) {
+        if (acceptedValues.contains(value)) {
+            return value;
+        }
+        if (maxDistinctValues <= acceptedValues.size()) {
+            return OTHER;
+        }
+        acceptedValues.add(value);
+        return value;
+    }
+
+    /**
+     * タグの値の種類の上限を設定する。
+     * <p>
+     * 未設定の場合は{@value #DEFAULT_MAX_DISTINCT_VALUES}になる。
+     * </p>
+     * @param maxDistinctValues タグの値の種類の上限
+     */
+    public void setMaxDistinctValues(int maxDistinctValues) {
+        this.maxDistinctValues = maxDistinctValues;
+        acceptedValues.clear();
+    }
+}
@@ -2,11 +2,23 @@ package nablarch.integration.micrometer.instrument.batch;
 
 import io.micrometer.core.instrument.Tag;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * バッチのリクエストパスからアクションクラスの情報をタグとして取り出すためのユーティリティ。
+ * <p>
+ * バッチプロセスの中でリクエストパスはほとんど変わらないため、取り出した{@link Tag}はリクエストパスごとにキャッシュする。<br>
+ * キャッシュする件数には上限があり、上限に達した後に初めて出現したリクエストパスはキャッシュせずに毎回解析する。
+ * </p>
  * @author Tanaka Tomoyuki
  */
 public final class BatchActionClassTagUtil {
+    /** キャッシュする件数の上限。 */
+    static final int MAX_CACHE_SIZE = 1000;
+
+    /** リクエストパスごとの{@link Tag}のキャッシュ。 */
+    private static final Map<String, Tag> CACHE = new ConcurrentHashMap<>();
 
     /**
      * リクエストパスからバッチアクションクラスの名前を取得して {@link Tag} で返す。
@@ -14,11 +26,65 @@ public final class BatchActionClassTagUtil {
      * @return バッチアクションクラス名を設定した {@link Tag}
      */
     public static Tag obtain(String requestPath) {
-        String[] tokens = requestPath.split("/");
-        if (tokens.length < 2) {
+        Tag tag = CACHE.get(requestPath);
+        if (tag != null) {
+            return tag;
+        }
+
+        tag = Tag.of("class", parseActionClassName(requestPath));
+        if (CACHE.size() < MAX_CACHE_SIZE) {
+            CACHE.putIfAbsent(requestPath, tag);
+        }
+        return tag;
+    }
+
+    /**
+     * リクエストパスからバッチアクションクラスの名前を取り出す。
+     * <p>
+     * {@code requestPath.split("/")}の結果の要素数が2以上の場合に先頭の要素を返すのと同じ結果になるよう、
+     * 最初の{@code /}の位置を探して解析する。<br>
+     * {@link String#split(String)}は末尾の空文字列の要素を取り除くため、
+     * 最初の{@code /}より後ろに{@code /}以外の文字が無い場合は不正な形式とみなす。
+     * </p>
+     * @param requestPath リクエストパス
+     * @return バッチアクションクラスの名前
+     */
+    private static String parseActionClassName(String requestPath) {
+        int separatorIndex = requestPath.indexOf('/');
+        if (separatorIndex < 0 || !hasNonSeparatorChar(requestPath, separatorIndex + 1)) {
             throw new IllegalArgumentException("Illegal requestPath format. requestPath='" + requestPath + "'.");
         }
-        return Tag.of("class", tokens[0]);
+        return requestPath.substring(0, separatorIndex);
+    }
+
+    /**
+     * 指定した位置以降に{@code /}以外の文字があるかどうかを判定する。
+     * @param requestPath リクエストパス
+     * @param fromIndex 判定を開始する位置
+     * @return {@code /}以外の文字がある場合は{@code true}
+     */
+    private static boolean hasNonSeparatorChar(String requestPath, int fromIndex) {
+        for (int i = fromIndex; i < requestPath.length(); i++) {
+            if (requestPath.charAt(i) != '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * キャッシュしている件数を取得する。
+     * @return キャッシュしている件数
+     */
+    static int cacheSize() {
+        return CACHE.size();
+    }
+
+    /**
+     * キャッシュを破棄する。
+     */
+    static void clearCache() {
+        CACHE.clear();
     }
 
     /**
@@ -1,12 +1,17 @@
 package nablarch.integration.micrometer.instrument.batch;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Tags;
 import nablarch.core.ThreadContext;
 import nablarch.core.log.app.CommitLogger;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * バッチの処理件数をメトリクスとして収集する{@link CommitLogger}の実装クラス。
  * <p>
@@ -16,6 +21,24 @@ import nablarch.core.log.app.CommitLogger;
  *   <li>{@code class} : バッチのアクションクラス名</li>
  * </ul>
  * </p>
+ * <p>
+ * {@link #setPerThreadMetricsEnabled(boolean)}で{@code true}を設定すると、
+ * マルチスレッドで実行するバッチのスレッド間の偏りを確認できるよう、スレッドごとに以下のメトリクスも収集する。
+ * <ul>
+ *   <li>{@code "batch.thread.processed.record.count"} : スレッドごとの処理件数（{@link FunctionCounter}）</li>
+ *   <li>{@code "batch.thread.processed.record.rate"} : 直前のステップでのスレッドごとの1秒あたりの処理件数（{@link Gauge}）</li>
+ * </ul>
+ * これらのメトリクスには、{@code class}タグに加えてスレッド名が{@code thread}タグで設定される。<br>
+ * 処理件数はスレッドごとに別々のストライプ化したカウンタで保持するため、コミット時にスレッド間で競合しない。<br>
+ * 処理速度を求めるステップの長さは{@link #setPerThreadRateStepMillis(long)}で設定する。
+ * </p>
+ * <p>
+ * スレッドごとの処理件数は、{@link #terminate()}の後も保持し、同じスレッド名で再度処理した場合は続きから加算する。
+ * </p>
+ * <p>
+ * {@link #setBatchProgressMetrics(BatchProgressMetrics)}で{@link BatchProgressMetrics}を設定すると、
+ * {@link #initialize()}で{@link BatchProgressMetrics}を{@link MeterRegistry}にバインドし、処理件数を{@link BatchProgressMetrics}にも加算する。
+ * </p>
  * @author Tanaka Tomoyuki
  */
 public class BatchProcessedRecordCountMetricsLogger implements CommitLogger {
@@ -23,6 +46,16 @@ public class BatchProcessedRecordCountMetricsLogger implements CommitLogger {
     static final String DEFAULT_METRICS_NAME = "batch.processed.record.count";
     /** デフォルトのメトリクスの説明。 */
     static final String DEFAULT_METRICS_DESCRIPTION = "Count of processed records.";
+    /** スレッドごとの処理件数のメトリクス名。 */
+    static final String THREAD_COUNT_METRICS_NAME = "batch.thread.processed.record.count";
+    /** スレッドごとの処理件数のメトリクスの説明。 */
+    static final String THREAD_COUNT_METRICS_DESCRIPTION = "Count of processed records per thread.";
+    /** スレッドごとの処理速度のメトリクス名。 */
+    static final String THREAD_RATE_METRICS_NAME = "batch.thread.processed.record.rate";
+    /** スレッドごとの処理速度のメトリクスの説明。 */
+    static final String THREAD_RATE_METRICS_DESCRIPTION = "Processed records per second per thread.";
+    /** スレッドごとの処理速度を求めるデフォルトのステップの長さ（ミリ秒）。 */
+    static final long DEFAULT_PER_THREAD_RATE_STEP_MILLIS = 60_000L;
 
     /** 使用する {@link MeterRegistry}。 */
     private MeterRegistry meterRegistry;
@@ -30,6 +63,21 @@ public class BatchProcessedRecordCountMetricsLogger implements CommitLogger {
     private String metricsName = DEFAULT_METRICS_NAME;
     /** メトリクスの説明。 */
     private String metricsDescription = DEFAULT_METRICS_DESCRIPTION;
+    /** スレッドごとのメトリクスを収集するかどうか。 */
+    private boolean perThreadMetricsEnabled = false;
+    /** スレッドごとの処理速度を求めるステップの長さ（ミリ秒）。 */
+    private long perThreadRateStepMillis = DEFAULT_PER_THREAD_RATE_STEP_MILLIS;
+    /** タグごとの処理件数（メトリクスから参照されている間に破棄されないよう保持する）。 */
+    private final ConcurrentMap<Tags, ThreadRecordCount> threadRecordCounts = new ConcurrentHashMap<>();
+    /**
+     * 現在のスレッドの処理件数。
+     * <p>
+     * {@link #terminate()}で全てのスレッドの参照を破棄できるよう、インスタンスごと差し替える。
+     * </p>
+     */
+    private volatile ThreadLocal<ThreadRecordCount> threadRecordCount = new ThreadLocal<>();
+    /** 処理件数を加算する{@link BatchProgressMetrics}。 */
+    private BatchProgressMetrics batchProgressMetrics;
 
     @Override
     public void increment(long count) {
@@ -37,23 +85,70 @@ public class BatchProcessedRecordCountMetricsLogger implements CommitLogger {
             throw new IllegalStateException("meterRegistry is null.");
         }
 
-        Tag tag = BatchActionClassTagUtil.obtain(ThreadContext.getRequestId());
+        String requestId = ThreadContext.getRequestId();
+        Tag tag = BatchActionClassTagUtil.obtain(requestId);
 
         Counter.builder(metricsName)
                 .tags(Tags.of(tag))
                 .description(metricsDescription)
                 .register(meterRegistry)
                 .increment(count);
+
+        if (perThreadMetricsEnabled) {
+            obtainThreadRecordCount(tag).add(count);
+        }
+        if (batchProgressMetrics != null) {
+            batchProgressMetrics.addProcessedRecordCount(count);
+        }
+    }
+
+    /**
+     * 現在のスレッドの処理件数を取得する。
+     * <p>
+     * 現在のスレッドで初めて呼び出された場合は、処理件数を生成してスレッドごとのメトリクスを登録する。
+     * </p>
+     * @param tag バッチアクションクラス名を設定した {@link Tag}
+     * @return 現在のスレッドの処理件数
+     */
+    private ThreadRecordCount obtainThreadRecordCount(Tag tag) {
+        ThreadLocal<ThreadRecordCount> currentThreadRecordCount = threadRecordCount;
+        ThreadRecordCount recordCount = currentThreadRecordCount.get();
+        if (recordCount != null && recordCount.isFor(meterRegistry, tag)) {
+            return recordCount;
+        }
+
+        Tags tags = Tags.of(tag).and("thread", Thread.currentThread().getName());
+        recordCount = threadRecordCounts.computeIfAbsent(tags, key -> {
+            ThreadRecordCount newRecordCount = new ThreadRecordCount(meterRegistry, tag, perThreadRateStepMillis);
+            FunctionCounter.builder(THREAD_COUNT_METRICS_NAME, newRecordCount, ThreadRecordCount::count)
+                    .tags(key)
+                    .description(THREAD_COUNT_METRICS_DESCRIPTION)
+                    .register(meterRegistry);
+            Gauge.builder(THREAD_RATE_METRICS_NAME, newRecordCount, ThreadRecordCount::recordsPerSecond)
+                    .tags(key)
+                    .description(THREAD_RATE_METRICS_DESCRIPTION)
+                    .register(meterRegistry);
+            return newRecordCount;
+        });
+        currentThreadRecordCount.set(recordCount);
+        return recordCount;
     }
 
     @Override
     public void initialize() {
-        // noop
+        if (batchProgressMetrics == null) {
+            return;
+        }
+        if (meterRegistry == null) {
+            throw new IllegalStateException("meterRegistry is null.");
+        }
+        batchProgressMetrics.bindTo(meterRegistry);
     }
 
     @Override
     public void terminate() {
-        // noop
+        threadRecordCount.remove();
+        threadRecordCount = new ThreadLocal<>();
     }
 
     /**
@@ -72,11 +167,43 @@ public class BatchProcessedRecordCountMetricsLogger implements CommitLogger {
         this.metricsDescription = metricsDescription;
     }
 
+    /**
+     * スレッドごとのメトリクスを収集するかどうかを設定する。
+     * <p>
+     * デフォルトは{@code false}（収集しない）。
+     * </p>
+     * @param perThreadMetricsEnabled スレッドごとのメトリクスを収集する場合は{@code true}
+     */
+    public void setPerThreadMetricsEnabled(boolean perThreadMetricsEnabled) {
+        this.perThreadMetricsEnabled = perThreadMetricsEnabled;
+    }
+
+    /**
+     * スレッドごとの処理速度を求めるステップの長さ（ミリ秒）を設定する。
+     * <p>
+     * デフォルトは{@value #DEFAULT_PER_THREAD_RATE_STEP_MILLIS}ミリ秒。
+     * メトリクスを収集する間隔に合わせて、1以上の値を設定する。
+     * </p>
+     * @param perThreadRateStepMillis 処理速度を求めるステップの長さ（ミリ秒）
+     */
+    public void setPerThreadRateStepMillis(long perThreadRateStepMillis) {
+        this.perThreadRateStepMillis = perThreadRateStepMillis;
+    }
+
+    /**
+     * 処理件数を加算する{@link BatchProgressMetrics}を設定する。
+     * @param batchProgressMetrics {@link BatchProgressMetrics}
+     */
+    public void setBatchProgressMetrics(BatchProgressMetrics batchProgressMetrics) {
+        this.batchProgressMetrics = batchProgressMetrics;
+    }
+
     /**
      * {@link MeterRegistry}を設定する。
      * @param meterRegistry {@link MeterRegistry}
      */
     public void setMeterRegistry(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
+        threadRecordCounts.clear();
     }
 }
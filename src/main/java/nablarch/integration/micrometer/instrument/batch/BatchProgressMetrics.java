@@ -0,0 +1,161 @@
+package nablarch.integration.micrometer.instrument.batch;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nablarch.core.util.annotation.Published;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * バッチの進捗と終了までの予測時間をメトリクスとして収集する{@link MeterBinder}。
+ * <p>
+ * 以下のメトリクスが登録される。
+ * <ul>
+ *   <li>{@code "batch.progress.total.records"} : 処理対象の総件数（未設定の場合は{@code NaN}）</li>
+ *   <li>{@code "batch.progress.processed.records"} : 処理済みの件数</li>
+ *   <li>{@code "batch.progress.throughput"} : 計測を開始してからの1秒あたりの平均処理件数</li>
+ *   <li>{@code "batch.progress.remaining.time"} : 平均処理件数から予測した、残りの処理にかかる時間（予測できない場合は{@code NaN}）</li>
+ * </ul>
+ * </p>
+ * <p>
+ * 処理対象の総件数は、{@code DataReader}で入力件数が分かった時点で{@link #setTotalRecordCount(long)}で設定する。<br>
+ * 処理済みの件数は、{@link BatchProcessedRecordCountMetricsLogger#setBatchProgressMetrics(BatchProgressMetrics)}で
+ * このクラスを設定すると、コミットのたびに{@link #addProcessedRecordCount(long)}で加算される。<br>
+ * 計測は、最初に{@link #bindTo(MeterRegistry)}が呼び出された時点から開始する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+@Published(tag = "architect")
+public class BatchProgressMetrics implements MeterBinder {
+    /** 処理対象の総件数のメトリクス名。 */
+    static final String TOTAL_RECORDS_METRICS_NAME = "batch.progress.total.records";
+    /** 処理済みの件数のメトリクス名。 */
+    static final String PROCESSED_RECORDS_METRICS_NAME = "batch.progress.processed.records";
+    /** 平均処理件数のメトリクス名。 */
+    static final String THROUGHPUT_METRICS_NAME = "batch.progress.throughput";
+    /** 残りの処理にかかる時間のメトリクス名。 */
+    static final String REMAINING_TIME_METRICS_NAME = "batch.progress.remaining.time";
+    /** 1秒あたりのナノ秒数。 */
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /** 追加のタグ一覧。 */
+    private final Iterable<Tag> tags;
+    /** 処理対象の総件数（未設定の場合は負の値）。 */
+    private volatile long totalRecordCount = -1L;
+    /** 処理済みの件数。 */
+    private final LongAdder processedRecordCount = new LongAdder();
+    /** 時刻の取得に使用する{@link Clock}。 */
+    private volatile Clock clock;
+    /** 計測を開始した時刻。 */
+    private volatile long startTime;
+
+    /**
+     * コンストラクタ。
+     */
+    public BatchProgressMetrics() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * 追加のタグを指定するコンストラクタ。
+     * @param tags 追加で指定するタグ
+     */
+    public BatchProgressMetrics(Iterable<Tag> tags) {
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        synchronized (this) {
+            if (clock == null) {
+                startTime = registry.config().clock().monotonicTime();
+                clock = registry.config().clock();
+            }
+        }
+
+        Gauge.builder(TOTAL_RECORDS_METRICS_NAME, this, BatchProgressMetrics::totalRecords)
+                .description("Total count of records to be processed.")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(PROCESSED_RECORDS_METRICS_NAME, this, BatchProgressMetrics::processedRecords)
+                .description("Count of processed records.")
+                .tags(tags)
+                .register(registry);
+        Gauge.builder(THROUGHPUT_METRICS_NAME, this, BatchProgressMetrics::throughput)
+                .description("Average count of processed records per second.")
+                .tags(tags)
+                .register(registry);
+        TimeGauge.builder(REMAINING_TIME_METRICS_NAME, this, TimeUnit.SECONDS, BatchProgressMetrics::remainingSeconds)
+                .description("Estimated time remaining to process all records.")
+                .tags(tags)
+                .register(registry);
+    }
+
+    /**
+     * 処理対象の総件数を設定する。
+     * @param totalRecordCount 処理対象の総件数
+     */
+    public void setTotalRecordCount(long totalRecordCount) {
+        this.totalRecordCount = totalRecordCount;
+    }
+
+    /**
+     * 処理済みの件数を加算する。
+     * @param count 加算する件数
+     */
+    public void addProcessedRecordCount(long count) {
+        processedRecordCount.add(count);
+    }
+
+    /**
+     * 処理対象の総件数を取得する。
+     * @return 処理対象の総件数（未設定の場合は{@code NaN}）
+     */
+    private double totalRecords() {
+        long total = totalRecordCount;
+        return total < 0 ? Double.NaN : total;
+    }
+
+    /**
+     * 処理済みの件数を取得する。
+     * @return 処理済みの件数
+     */
+    private double processedRecords() {
+        return processedRecordCount.sum();
+    }
+
+    /**
+     * 計測を開始してからの1秒あたりの平均処理件数を取得する。
+     * @return 1秒あたりの平均処理件数
+     */
+    private double throughput() {
+        long elapsed = clock.monotonicTime() - startTime;
+        if (elapsed <= 0) {
+            return 0.0;
+        }
+        return processedRecordCount.sum() * NANOS_PER_SECOND / elapsed;
+    }
+
+    /**
+     * 残りの処理にかかる時間（秒）を予測する。
+     * @return 残りの処理にかかる時間（予測できない場合は{@code NaN}）
+     */
+    private double remainingSeconds() {
+        long total = totalRecordCount;
+        if (total < 0) {
+            return Double.NaN;
+        }
+        long remaining = total - processedRecordCount.sum();
+        if (remaining <= 0) {
+            return 0.0;
+        }
+        double throughput = throughput();
+        return throughput <= 0.0 ? Double.NaN : remaining / throughput;
+    }
+}
@@ -0,0 +1,168 @@
+package nablarch.integration.micrometer.instrument.batch;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import nablarch.core.ThreadContext;
+import nablarch.core.log.app.CommitLogger;
+import nablarch.integration.micrometer.instrument.MeterCache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * バッチのトランザクションごとの処理時間を、少ないオーバーヘッドでメトリクスとして計測するロガー。
+ * <p>
+ * 計測するメトリクスは{@link BatchTransactionTimeMetricsLogger}と同じで、{@code "batch.transaction.time"}という名前で作成される。
+ * </p>
+ * <p>
+ * {@link BatchTransactionTimeMetricsLogger}は、コミットのたびに{@link Timer.Sample}を{@link ThreadContext}から取り出し、
+ * リクエストIDからアクションクラス名を取り出して{@link Timer}を組み立て、次の{@link Timer.Sample}を生成する。<br>
+ * このクラスは、トランザクションの開始時刻を{@code long}値のままこのクラス専用のスレッドローカルに保持し、
+ * 解決済みの{@link Timer}をリクエストIDごとにキャッシュする。<br>
+ * これにより、キャッシュされた後のコミットでは経過時間を{@code long}値で記録するだけになり、オブジェクトを生成しない。
+ * </p>
+ * <p>
+ * 開始時刻のスレッドローカルは子スレッドに引き継がれる。
+ * マルチスレッドで実行するバッチでは、{@link ThreadContext}と同じく、各スレッドは{@link #initialize()}を呼び出した時刻から計測を開始する。<br>
+ * 開始時刻が設定されていないスレッドでは、最初のコミットは記録せず、その時刻から計測を開始する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+public class LowOverheadBatchTransactionTimeMetricsLogger implements CommitLogger {
+    /** 開始時刻が設定されていないことを表す値。 */
+    private static final long UNSET = Long.MIN_VALUE;
+
+    /** 使用する {@link MeterRegistry}。 */
+    private MeterRegistry meterRegistry;
+    /** 時刻の取得に使用する{@link Clock}。 */
+    private Clock clock;
+    /** メトリクス名。 */
+    private String metricsName = BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME;
+    /** メトリクスの説明。 */
+    private String metricsDescription = BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_DESCRIPTION;
+    /** キャッシュする{@link Timer}の件数の上限。 */
+    private int maxCacheSize = MeterCache.DEFAULT_MAX_SIZE;
+    /**
+     * リクエストIDごとの{@link Timer}のキャッシュ。
+     * <p>
+     * 最初に使用するときに生成する。設定が変更された場合は破棄し、次に使用するときに生成し直す。
+     * </p>
+     */
+    private volatile MeterCache<String, Timer> timerCache;
+    /** キャッシュに存在しない場合に{@link Timer}を登録するファクトリ（コミットのたびに生成しないよう保持する）。 */
+    private final Function<String, Timer> timerFactory = this::registerTimer;
+
+    /** トランザクションの開始時刻を保持するスレッドローカル。 */
+    private final ThreadLocal<long[]> startTime = new InheritableThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[] {UNSET};
+        }
+
+        @Override
+        protected long[] childValue(long[] parentValue) {
+            return new long[] {parentValue[0]};
+        }
+    };
+
+    @Override
+    public void initialize() {
+        if (meterRegistry == null) {
+            throw new IllegalStateException("meterRegistry is null.");
+        }
+        startTime.get()[0] = clock.monotonicTime();
+    }
+
+    @Override
+    public void increment(long count) {
+        if (meterRegistry == null) {
+            throw new IllegalStateException("meterRegistry is null.");
+        }
+        long[] start = startTime.get();
+        long now = clock.monotonicTime();
+        if (start[0] != UNSET) {
+            obtainTimerCache().get(ThreadContext.getRequestId(), timerFactory).record(now - start[0], TimeUnit.NANOSECONDS);
+        }
+        start[0] = now;
+    }
+
+    /**
+     * {@link Timer}のキャッシュを取得する。
+     * <p>
+     * まだ生成していない場合は、その時点の設定で生成する。
+     * </p>
+     * @return {@link Timer}のキャッシュ
+     */
+    private MeterCache<String, Timer> obtainTimerCache() {
+        MeterCache<String, Timer> cache = timerCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = timerCache;
+                if (cache == null) {
+                    cache = new MeterCache<>(meterRegistry, maxCacheSize);
+                    timerCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * {@link Timer}を{@link MeterRegistry}に登録する。
+     * @param requestId リクエストID
+     * @return 登録した{@link Timer}
+     */
+    private Timer registerTimer(String requestId) {
+        return Timer.builder(metricsName)
+                .description(metricsDescription)
+                .tags(Tags.of(BatchActionClassTagUtil.obtain(requestId)))
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void terminate() {
+        startTime.remove();
+    }
+
+    /**
+     * {@link MeterRegistry}を設定する。
+     * @param meterRegistry {@link MeterRegistry}
+     */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.clock = meterRegistry.config().clock();
+        timerCache = null;
+    }
+
+    /**
+     * キャッシュする{@link Timer}の件数の上限を設定する。
+     * <p>
+     * 未設定の場合は{@link MeterCache#DEFAULT_MAX_SIZE}が使用される。
+     * </p>
+     * @param maxCacheSize キャッシュする{@link Timer}の件数の上限
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        timerCache = null;
+    }
+
+    /**
+     * メトリクスの名前を設定する。
+     * @param metricsName メトリクスの名前
+     */
+    public void setMetricsName(String metricsName) {
+        this.metricsName = metricsName;
+        timerCache = null;
+    }
+
+    /**
+     * メトリクスの説明を設定する。
+     * @param metricsDescription メトリクスの説明
+     */
+    public void setMetricsDescription(String metricsDescription) {
+        this.metricsDescription = metricsDescription;
+        timerCache = null;
+    }
+}
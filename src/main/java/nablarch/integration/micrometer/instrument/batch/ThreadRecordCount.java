@@ -0,0 +1,111 @@
+package nablarch.integration.micrometer.instrument.batch;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * スレッドごとのバッチの処理件数を保持するクラス。
+ * <p>
+ * 処理件数は{@link LongAdder}で保持し、スレッドごとに別々のインスタンスに加算することで、コミット時にスレッド間で競合しないようにする。<br>
+ * 読み出し側（メトリクスを収集するスレッド）は、{@link #count()}と{@link #recordsPerSecond()}で値を参照する。
+ * </p>
+ * <p>
+ * 処理速度は、一定の長さのステップごとに求める。
+ * ステップが切り替わってから最初に参照されたときに、前回求めたときからの処理件数と経過時間から値を求め直し、
+ * 同じステップの間は参照されるたびに同じ値を返す。<br>
+ * これにより、処理速度を参照するスレッドが複数あっても、互いの参照で値が変わることはない。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+class ThreadRecordCount {
+    /** 1秒あたりのナノ秒数。 */
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /** メトリクスを登録した{@link MeterRegistry}。 */
+    private final MeterRegistry meterRegistry;
+    /** バッチアクションクラス名を設定した{@link Tag}。 */
+    private final Tag classTag;
+    /** 時刻の取得に使用する{@link Clock}。 */
+    private final Clock clock;
+    /** 処理速度を求めるステップの長さ（ナノ秒）。 */
+    private final long stepNanos;
+    /** 処理件数。 */
+    private final LongAdder count = new LongAdder();
+    /** ステップの起点となる時刻。 */
+    private final long origin;
+
+    /** 前回処理速度を求めたときのステップの番号。 */
+    private long lastStep;
+    /** 前回処理速度を求めたときの処理件数。 */
+    private long lastCount;
+    /** 前回処理速度を求めた時刻。 */
+    private long lastTime;
+    /** 前回求めた処理速度。 */
+    private double lastRate;
+
+    /**
+     * コンストラクタ。
+     * @param meterRegistry メトリクスを登録する{@link MeterRegistry}
+     * @param classTag バッチアクションクラス名を設定した{@link Tag}
+     * @param stepMillis 処理速度を求めるステップの長さ（ミリ秒）
+     */
+    ThreadRecordCount(MeterRegistry meterRegistry, Tag classTag, long stepMillis) {
+        this.meterRegistry = meterRegistry;
+        this.classTag = classTag;
+        this.clock = meterRegistry.config().clock();
+        this.stepNanos = TimeUnit.MILLISECONDS.toNanos(stepMillis);
+        this.origin = clock.monotonicTime();
+        this.lastTime = origin;
+    }
+
+    /**
+     * このインスタンスが、指定した{@link MeterRegistry}とバッチアクションクラスのものかどうかを判定する。
+     * @param meterRegistry {@link MeterRegistry}
+     * @param classTag バッチアクションクラス名を設定した{@link Tag}
+     * @return 指定した{@link MeterRegistry}とバッチアクションクラスのものであれば{@code true}
+     */
+    boolean isFor(MeterRegistry meterRegistry, Tag classTag) {
+        return this.meterRegistry == meterRegistry && this.classTag.equals(classTag);
+    }
+
+    /**
+     * 処理件数を加算する。
+     * @param delta 加算する件数
+     */
+    void add(long delta) {
+        count.add(delta);
+    }
+
+    /**
+     * 処理件数を取得する。
+     * @return 処理件数
+     */
+    double count() {
+        return count.sum();
+    }
+
+    /**
+     * 直前のステップで求めた1秒あたりの処理件数を取得する。
+     * <p>
+     * 最初のステップが終わるまでは{@code 0}を返す。
+     * </p>
+     * @return 1秒あたりの処理件数
+     */
+    synchronized double recordsPerSecond() {
+        long now = clock.monotonicTime();
+        long step = (now - origin) / stepNanos;
+        if (step <= lastStep) {
+            return lastRate;
+        }
+        long currentCount = count.sum();
+        lastRate = (currentCount - lastCount) * NANOS_PER_SECOND / (now - lastTime);
+        lastStep = step;
+        lastCount = currentCount;
+        lastTime = now;
+        return lastRate;
+    }
+}
@@ -0,0 +1,83 @@
+package nablarch.integration.micrometer.instrument.binder.jmx;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.InvalidKeyException;
+import javax.management.openmbean.TabularData;
+
+/**
+ * MBeanの属性値が{@link CompositeData}や{@link TabularData}の場合に、その中の値をたどるためのパス。
+ * <p>
+ * パスは、{@code .}で区切った要素で構成する。各要素は、たどる対象の値の型に応じて以下のように解釈する。
+ * <ul>
+ *   <li>{@link CompositeData}: 項目名</li>
+ *   <li>{@link TabularData}: 行のインデックス（インデックスが1つの文字列項目で構成される表のみ対応）</li>
+ * </ul>
+ * 例えば、{@code HeapMemoryUsage}属性に対して{@code used}、
+ * {@code LastGcInfo}属性に対して{@code memoryUsageAfterGc.G1 Old Gen.value.used}のように指定する。
+ * </p>
+ * <p>
+ * パスの解析は生成時に一度だけ行い、値をたどるときは要素の配列を順に参照するだけにしている。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+final class AttributePath {
+    /** 空のパス（属性値をそのまま返す）。 */
+    static final AttributePath EMPTY = new AttributePath(new String[0]);
+
+    /** パスの要素。 */
+    private final String[] segments;
+
+    /**
+     * コンストラクタ。
+     * @param segments パスの要素
+     */
+    private AttributePath(String[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * パスを解析する。
+     * @param path パス（{@code null}または空文字の場合は空のパス）
+     * @return 解析したパス
+     * @throws IllegalArgumentException パスに空の要素が含まれる場合
+     */
+    static AttributePath parse(String path) {
+        if (path == null || path.isEmpty()) {
+            return EMPTY;
+        }
+        String[] segments = path.split("\\.", -1);
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("path must not contain empty segment. path=" + path);
+            }
+        }
+        return new AttributePath(segments);
+    }
+
+    /**
+     * 属性値からパスをたどった先の値を取得する。
+     * @param value 属性値
+     * @return パスをたどった先の値（たどれない場合は{@code null}）
+     */
+    Object resolve(Object value) {
+        Object current = value;
+        for (String segment : segments) {
+            if (current instanceof CompositeData) {
+                CompositeData compositeData = (CompositeData) current;
+                if (!compositeData.containsKey(segment)) {
+                    return null;
+                }
+                current = compositeData.get(segment);
+            } else if (current instanceof TabularData) {
+                try {
+                    current = ((TabularData) current).get(new Object[] {segment});
+                } catch (InvalidKeyException e) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,132 @@
+package nablarch.integration.micrometer.instrument.binder.jmx;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nablarch.core.util.annotation.Published;
+import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 複数の{@link JmxGaugeMetrics}をまとめて{@link Gauge}として記録する{@link MeterBinder}の実装クラス。
+ * <p>
+ * 同じMBeanを対象とする{@link JmxGaugeMetrics}をオブジェクト名でグループ化し、
+ * グループごとに{@link MBeanServer#getAttributes(ObjectName, String[])}で全ての属性の値をまとめて取得する。<br>
+ * 取得した値はグループ内の{@link Gauge}で共有するため、1回の収集周期でMBeanにアクセスするのはグループごとに1回だけになる。
+ * </p>
+ * <p>
+ * 取得した値は、{@link #setCacheTimeToLiveMillis(long)}で設定した有効期間
+ * （デフォルトは{@value #DEFAULT_CACHE_TIME_TO_LIVE_MILLIS}ミリ秒）が経過するまで保持し、
+ * 有効期間内の収集ではMBeanにアクセスせずに全ての{@link MeterRegistry}で共有する。<br>
+ * 有効期間は、収集周期より短い値を設定すること。
+ * </p>
+ * <p>
+ * 登録される{@link Gauge}のメトリクス名、説明、タグ、および値は、個々の{@link JmxGaugeMetrics}を登録した場合と同じになる。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+@Published(tag = "architect")
+public class BulkJmxGaugeMetrics implements MeterBinder {
+    /** 取得した値のデフォルトの有効期間（ミリ秒）。 */
+    static final long DEFAULT_CACHE_TIME_TO_LIVE_MILLIS = 1000;
+
+    /** まとめて記録する{@link JmxGaugeMetrics}のリスト。 */
+    private final List<JmxGaugeMetrics> jmxGaugeMetricsList;
+    /** 取得した値の有効期間（ナノ秒）。 */
+    private long cacheTimeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_CACHE_TIME_TO_LIVE_MILLIS);
+    /** 有効期間の判定に使用する{@link Clock}。 */
+    private Clock clock = Clock.SYSTEM;
+    /** オブジェクト名ごとの、取得した値を保持する{@link MBeanAttributeSnapshot}。 */
+    private final Map<ObjectName, MBeanAttributeSnapshot> snapshots = new LinkedHashMap<>();
+
+    /**
+     * コンストラクタ。
+     * @param jmxGaugeMetricsList まとめて記録する{@link JmxGaugeMetrics}のリスト
+     */
+    public BulkJmxGaugeMetrics(List<JmxGaugeMetrics> jmxGaugeMetricsList) {
+        this.jmxGaugeMetricsList = new ArrayList<>(jmxGaugeMetricsList);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        Map<ObjectName, List<JmxGaugeMetrics>> groups = new LinkedHashMap<>();
+        for (JmxGaugeMetrics jmxGaugeMetrics : jmxGaugeMetricsList) {
+            ObjectName objectName = JmxGaugeMetrics.parseObjectName(jmxGaugeMetrics.getCondition().getObjectName());
+            groups.computeIfAbsent(objectName, key -> new ArrayList<>()).add(jmxGaugeMetrics);
+        }
+
+        for (Map.Entry<ObjectName, List<JmxGaugeMetrics>> group : groups.entrySet()) {
+            List<JmxGaugeMetrics> members = group.getValue();
+            List<String> attributes = new ArrayList<>(members.size());
+            for (JmxGaugeMetrics member : members) {
+                attributes.add(member.getCondition().getAttribute());
+            }
+            MBeanAttributeSnapshot snapshot = obtainSnapshot(server, group.getKey(), attributes);
+
+            for (int i = 0; i < members.size(); i++) {
+                int index = i;
+                MetricsMetaData metricsMetaData = members.get(i).getMetricsMetaData();
+                AttributePath path = AttributePath.parse(members.get(i).getCondition().getPath());
+                Gauge.builder(metricsMetaData.getName(), () -> toGaugeValue(path.resolve(snapshot.get(index))))
+                    .description(metricsMetaData.getDescription())
+                    .tags(metricsMetaData.getTags())
+                    .register(registry);
+            }
+        }
+    }
+
+    /**
+     * オブジェクト名に対応する{@link MBeanAttributeSnapshot}を取得する。
+     * <p>
+     * 複数の{@link MeterRegistry}で共有するため、既に生成済みのものがあればそれを返す。
+     * </p>
+     * @param server {@link MBeanServer}
+     * @param objectName オブジェクト名
+     * @param attributes 取得する属性名
+     * @return {@link MBeanAttributeSnapshot}
+     */
+    private synchronized MBeanAttributeSnapshot obtainSnapshot(MBeanServer server, ObjectName objectName, List<String> attributes) {
+        return snapshots.computeIfAbsent(objectName,
+                key -> new MBeanAttributeSnapshot(server, key, attributes, cacheTimeToLiveNanos, clock));
+    }
+
+    /**
+     * 取得した値の有効期間を設定する。
+     * <p>
+     * デフォルトは{@value #DEFAULT_CACHE_TIME_TO_LIVE_MILLIS}ミリ秒。<br>
+     * {@code 0}以下を設定した場合は、値を保持せずに{@link Gauge}の値が読まれるたびに取得する。
+     * </p>
+     * @param cacheTimeToLiveMillis 取得した値の有効期間（ミリ秒）
+     */
+    public void setCacheTimeToLiveMillis(long cacheTimeToLiveMillis) {
+        this.cacheTimeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(cacheTimeToLiveMillis);
+    }
+
+    /**
+     * 有効期間の判定に使用する{@link Clock}を設定する。
+     * @param clock {@link Clock}
+     */
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * 属性の値を{@link Gauge}に設定する値に変換する。
+     * @param value 属性の値
+     * @return {@link Number}の場合はその値、それ以外の場合は{@code NaN}
+     */
+    private static double toGaugeValue(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+}
@@ -1,5 +1,6 @@
 package nablarch.integration.micrometer.instrument.binder.jmx;
 
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.MeterBinder;
@@ -8,11 +9,23 @@ import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
 
 import javax.management.JMException;
 import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 指定したMBeanから定期的に値を取得し{@link Gauge}として記録する{@link MeterBinder}の実装クラス。
+ * <p>
+ * オブジェクト名の解析と{@link MBeanServer}の取得は{@link #bindTo(MeterRegistry)}のときに一度だけ行い、
+ * 値を取得するたびには行わない。<br>
+ * 属性値の中の値をたどるためのパスも、{@link #bindTo(MeterRegistry)}のときに解析する。<br>
+ * オブジェクト名の形式やパスが不正な場合は、{@link #bindTo(MeterRegistry)}のときに例外をスローする。
+ * </p>
+ * <p>
+ * {@link #setCacheTimeToLiveMillis(long)}で有効期間を設定した場合は、MBeanから取得した値を有効期間の間キャッシュする。<br>
+ * 複数の{@link MeterRegistry}に登録した場合も、有効期間内の収集ではMBeanにアクセスせずキャッシュした値を共有する。
+ * </p>
  *
  * @author Tanaka Tomoyuki
  */
@@ -22,6 +35,16 @@ public class JmxGaugeMetrics implements MeterBinder {
     private final MetricsMetaData metricsMetaData;
     /** 対象のMBeanを特定するための条件。 */
     private final MBeanAttributeCondition condition;
+    /** 取得した値をキャッシュする有効期間（ナノ秒、{@code 0}以下の場合はキャッシュしない）。 */
+    private long cacheTimeToLiveNanos;
+    /** キャッシュの有効期間の判定に使用する{@link Clock}。 */
+    private Clock clock = Clock.SYSTEM;
+    /** キャッシュした値。 */
+    private double cachedValue;
+    /** 値をキャッシュ済みかどうか。 */
+    private boolean cached;
+    /** 値をキャッシュした時刻。 */
+    private long cachedTime;
 
     /**
      * コンストラクタ。
@@ -35,23 +58,109 @@ public class JmxGaugeMetrics implements MeterBinder {
 
     @Override
     public void bindTo(MeterRegistry registry) {
-        Gauge.builder(metricsMetaData.getName(), this::obtainGaugeValue)
+        ObjectName objectName = parseObjectName(condition.getObjectName());
+        AttributePath path = AttributePath.parse(condition.getPath());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        Gauge.builder(metricsMetaData.getName(), () -> obtainCachedGaugeValue(server, objectName, path))
             .description(metricsMetaData.getDescription())
             .tags(metricsMetaData.getTags())
             .register(registry);
     }
 
+    /**
+     * 取得した値をキャッシュする有効期間を設定する。
+     * <p>
+     * デフォルトは{@code 0}で、キャッシュしない。
+     * </p>
+     * @param cacheTimeToLiveMillis 取得した値をキャッシュする有効期間（ミリ秒）
+     */
+    public void setCacheTimeToLiveMillis(long cacheTimeToLiveMillis) {
+        this.cacheTimeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(cacheTimeToLiveMillis);
+    }
+
+    /**
+     * キャッシュの有効期間の判定に使用する{@link Clock}を設定する。
+     * @param clock {@link Clock}
+     */
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * メトリクスのメタ情報を取得する。
+     * @return メトリクスのメタ情報
+     */
+    MetricsMetaData getMetricsMetaData() {
+        return metricsMetaData;
+    }
+
+    /**
+     * 対象のMBeanを特定するための条件を取得する。
+     * @return 対象のMBeanを特定するための条件
+     */
+    MBeanAttributeCondition getCondition() {
+        return condition;
+    }
+
+    /**
+     * オブジェクト名を解析する。
+     * @param objectName オブジェクト名
+     * @return 解析した{@link ObjectName}
+     * @throws IllegalStateException オブジェクト名が設定されていない場合
+     * @throws IllegalArgumentException オブジェクト名の形式が不正な場合
+     */
+    static ObjectName parseObjectName(String objectName) {
+        if (objectName == null) {
+            throw new IllegalStateException("objectName is null.");
+        }
+        try {
+            return new ObjectName(objectName);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("objectName is invalid. objectName=" + objectName, e);
+        }
+    }
+
+    /**
+     * {@link Gauge} に設定する値を取得する。
+     * <p>
+     * 有効期間内にキャッシュした値がある場合はその値を返し、無い場合はMBeanから取得した値をキャッシュして返す。
+     * </p>
+     * @param server {@link MBeanServer}
+     * @param objectName 解析済みのオブジェクト名
+     * @param path 解析済みのパス
+     * @return {@link Gauge} に設定する値
+     */
+    private double obtainCachedGaugeValue(MBeanServer server, ObjectName objectName, AttributePath path) {
+        if (cacheTimeToLiveNanos <= 0) {
+            return obtainGaugeValue(server, objectName, path);
+        }
+
+        synchronized (this) {
+            long now = clock.monotonicTime();
+            if (!cached || cacheTimeToLiveNanos <= now - cachedTime) {
+                cachedValue = obtainGaugeValue(server, objectName, path);
+                cachedTime = now;
+                cached = true;
+            }
+            return cachedValue;
+        }
+    }
+
     /**
      * {@link Gauge} に設定する値をMBeanから取得する。
      * <p>
-     * MBeanが取得できない場合、または取得した値が{@link Number}でない場合は {@code NaN} を返す。
+     * MBeanが取得できない場合、または取得した値（パスを指定した場合はパスをたどった先の値）が{@link Number}でない場合は
+     * {@code NaN} を返す。
      * </p>
+     * @param server {@link MBeanServer}
+     * @param objectName 解析済みのオブジェクト名
+     * @param path 解析済みのパス
      * @return MBeanから取得した値
      */
-    private double obtainGaugeValue() {
+    private double obtainGaugeValue(MBeanServer server, ObjectName objectName, AttributePath path) {
         try {
-            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
-            Object value = server.getAttribute(new ObjectName(this.condition.getObjectName()), condition.getAttribute());
+            Object value = path.resolve(server.getAttribute(objectName, condition.getAttribute()));
             if (value instanceof Number) {
                 return ((Number) value).doubleValue();
             } else {
@@ -0,0 +1,197 @@
+package nablarch.integration.micrometer.instrument.binder.jmx;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nablarch.core.util.annotation.Published;
+import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * オブジェクト名のパターン({@code Catalina:type=ThreadPool,name=*}など)に一致するMBeanごとに、
+ * 値を定期的に取得し{@link Gauge}として記録する{@link MeterBinder}の実装クラス。
+ * <p>
+ * {@link Gauge}のタグには、{@link MetricsMetaData}で指定したタグに加えて、
+ * 一致したMBeanのオブジェクト名のキープロパティ(例えば{@code type=ThreadPool}と{@code name=http-nio-8080})が設定される。
+ * </p>
+ * <p>
+ * {@link #bindTo(MeterRegistry)}のときに一致するMBeanを検索して{@link Gauge}を登録した後は、
+ * {@link MBeanServerDelegate}が通知するMBeanの登録・登録解除を受け取って{@link Gauge}を追加・削除する。<br>
+ * 値を取得するたびにMBeanを検索することはしない。
+ * </p>
+ * <p>
+ * {@link #close()}を呼び出すと、MBeanの登録・登録解除の通知の受け取りを止める。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+@Published(tag = "architect")
+public class JmxPatternGaugeMetrics implements MeterBinder, Closeable {
+    /** メトリクスのメタ情報。 */
+    private final MetricsMetaData metricsMetaData;
+    /** 対象のMBeanを特定するための条件。 */
+    private final MBeanAttributeCondition condition;
+    /** {@link #bindTo(MeterRegistry)}で登録した、MBeanの登録・登録解除の通知を受け取るリスナー。 */
+    private final List<RegistrationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * コンストラクタ。
+     * @param metricsMetaData メトリクスのメタ情報
+     * @param condition 対象のMBeanを特定するための条件（オブジェクト名にはパターンを指定できる）
+     */
+    public JmxPatternGaugeMetrics(MetricsMetaData metricsMetaData, MBeanAttributeCondition condition) {
+        this.metricsMetaData = metricsMetaData;
+        this.condition = condition;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ObjectName pattern = JmxGaugeMetrics.parseObjectName(condition.getObjectName());
+        AttributePath path = AttributePath.parse(condition.getPath());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        RegistrationListener listener = new RegistrationListener(server, pattern, path, registry);
+        try {
+            server.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, listener, null, null);
+        } catch (InstanceNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        listeners.add(listener);
+
+        for (ObjectName objectName : server.queryNames(pattern, null)) {
+            listener.register(objectName);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (RegistrationListener listener : listeners) {
+            listener.close();
+        }
+        listeners.clear();
+    }
+
+    /**
+     * {@link Gauge} に設定する値をMBeanから取得する。
+     * <p>
+     * 取得した値が{@link Number}でない場合、または既にMBeanが登録解除されていた場合は {@code NaN} を返す。
+     * </p>
+     * @param server {@link MBeanServer}
+     * @param objectName 対象のMBeanのオブジェクト名
+     * @param path 解析済みのパス
+     * @return MBeanから取得した値
+     */
+    private double obtainGaugeValue(MBeanServer server, ObjectName objectName, AttributePath path) {
+        try {
+            Object value = path.resolve(server.getAttribute(objectName, condition.getAttribute()));
+            return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+        } catch (InstanceNotFoundException e) {
+            return Double.NaN;
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * MBeanの登録・登録解除の通知を受け取り、{@link Gauge}を追加・削除するリスナー。
+     */
+    private class RegistrationListener implements NotificationListener {
+        /** {@link MBeanServer}。 */
+        private final MBeanServer server;
+        /** オブジェクト名のパターン。 */
+        private final ObjectName pattern;
+        /** 解析済みのパス。 */
+        private final AttributePath path;
+        /** {@link Gauge}を登録する{@link MeterRegistry}。 */
+        private final MeterRegistry registry;
+        /** オブジェクト名ごとの登録済みの{@link Gauge}。 */
+        private final ConcurrentMap<ObjectName, Gauge> gauges = new ConcurrentHashMap<>();
+
+        /**
+         * コンストラクタ。
+         * @param server {@link MBeanServer}
+         * @param pattern オブジェクト名のパターン
+         * @param path 解析済みのパス
+         * @param registry {@link Gauge}を登録する{@link MeterRegistry}
+         */
+        RegistrationListener(MBeanServer server, ObjectName pattern, AttributePath path, MeterRegistry registry) {
+            this.server = server;
+            this.pattern = pattern;
+            this.path = path;
+            this.registry = registry;
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!(notification instanceof MBeanServerNotification)) {
+                return;
+            }
+            ObjectName objectName = ((MBeanServerNotification) notification).getMBeanName();
+            if (!pattern.apply(objectName)) {
+                return;
+            }
+
+            if (MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(notification.getType())) {
+                register(objectName);
+            } else if (MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+                Gauge gauge = gauges.remove(objectName);
+                if (gauge != null) {
+                    registry.remove(gauge);
+                }
+            }
+        }
+
+        /**
+         * MBeanに対応する{@link Gauge}を登録する。
+         * @param objectName 対象のMBeanのオブジェクト名
+         */
+        void register(ObjectName objectName) {
+            gauges.computeIfAbsent(objectName, name ->
+                Gauge.builder(metricsMetaData.getName(), () -> obtainGaugeValue(server, name, path))
+                    .description(metricsMetaData.getDescription())
+                    .tags(metricsMetaData.getTags())
+                    .tags(keyPropertyTags(name))
+                    .register(registry));
+        }
+
+        /**
+         * 通知の受け取りを止める。
+         */
+        void close() {
+            try {
+                server.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, this);
+            } catch (InstanceNotFoundException | ListenerNotFoundException e) {
+                // 既に削除されている場合は何もしない
+            }
+        }
+    }
+
+    /**
+     * オブジェクト名のキープロパティからタグを生成する。
+     * @param objectName オブジェクト名
+     * @return キープロパティのタグ
+     */
+    private static Tags keyPropertyTags(ObjectName objectName) {
+        Tags tags = Tags.empty();
+        for (Map.Entry<String, String> property : objectName.getKeyPropertyList().entrySet()) {
+            tags = tags.and(property.getKey(), property.getValue());
+        }
+        return tags;
+    }
+}
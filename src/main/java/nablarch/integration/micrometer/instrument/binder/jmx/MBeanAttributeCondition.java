@@ -4,6 +4,12 @@ import nablarch.core.util.annotation.Published;
 
 /**
  * JMXで取得するMBeanのAttributeを特定するための、オブジェクト名と属性名を保持したデータクラス。
+ * <p>
+ * 属性値が{@link javax.management.openmbean.CompositeData CompositeData}や
+ * {@link javax.management.openmbean.TabularData TabularData}の場合は、
+ * その中の値をたどるためのパス（{@code .}区切りの項目名、または表のインデックス）を指定できる。<br>
+ * 例えば、{@code java.lang:type=Memory}の{@code HeapMemoryUsage}属性のうち使用量を取得する場合は、パスに{@code used}を指定する。
+ * </p>
  * @author Tanaka Tomoyuki
  */
 @Published(tag = "architect")
@@ -12,6 +18,8 @@ public class MBeanAttributeCondition {
     private final String objectName;
     /** 属性名。 */
     private final String attribute;
+    /** 属性値の中の値をたどるためのパス。 */
+    private final String path;
 
     /**
      * オブジェクト名と属性を指定するコンストラクタ。
@@ -19,8 +27,19 @@ public class MBeanAttributeCondition {
      * @param attribute 属性名
      */
     public MBeanAttributeCondition(String objectName, String attribute) {
+        this(objectName, attribute, null);
+    }
+
+    /**
+     * オブジェクト名と属性、属性値の中の値をたどるためのパスを指定するコンストラクタ。
+     * @param objectName オブジェクト名
+     * @param attribute 属性名
+     * @param path 属性値の中の値をたどるためのパス（{@code .}区切り）
+     */
+    public MBeanAttributeCondition(String objectName, String attribute, String path) {
         this.objectName = objectName;
         this.attribute = attribute;
+        this.path = path;
     }
 
     /**
@@ -38,4 +57,12 @@ public class MBeanAttributeCondition {
     public String getAttribute() {
         return attribute;
     }
+
+    /**
+     * 属性値の中の値をたどるためのパスを取得する。
+     * @return パス（指定されていない場合は{@code null}）
+     */
+    public String getPath() {
+        return path;
+    }
 }
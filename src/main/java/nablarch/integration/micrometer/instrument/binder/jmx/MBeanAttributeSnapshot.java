@@ -0,0 +1,104 @@
+package nablarch.integration.micrometer.instrument.binder.jmx;
+
+import io.micrometer.core.instrument.Clock;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.List;
+
+/**
+ * 1つのMBeanの複数の属性の値を、{@link MBeanServer#getAttributes(ObjectName, String[])}でまとめて取得して保持するクラス。
+ * <p>
+ * 各属性の値は、前回の取得から有効期間が経過するまでは保持している値を返し、
+ * 有効期間が経過した後に読まれたときに全ての属性の値を取得しなおす。<br>
+ * 有効期間を収集周期より短く設定することで、1回の収集周期で{@link MBeanServer}にアクセスするのは1回だけになる。<br>
+ * 有効期間が{@code 0}以下の場合は、読まれるたびに取得しなおす。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+class MBeanAttributeSnapshot {
+    /** {@link MBeanServer}。 */
+    private final MBeanServer server;
+    /** 対象のMBeanのオブジェクト名。 */
+    private final ObjectName objectName;
+    /** 取得する属性名。 */
+    private final String[] attributes;
+    /** 取得した値の有効期間（ナノ秒、{@code 0}以下の場合は保持しない）。 */
+    private final long timeToLiveNanos;
+    /** 有効期間の判定に使用する{@link Clock}。 */
+    private final Clock clock;
+
+    /** 属性ごとに保持している値。 */
+    private final Object[] values;
+    /** 値を取得済みかどうか。 */
+    private boolean sampled;
+    /** 前回値を取得した時刻。 */
+    private long sampledTime;
+
+    /**
+     * コンストラクタ。
+     * @param server {@link MBeanServer}
+     * @param objectName 対象のMBeanのオブジェクト名
+     * @param attributes 取得する属性名
+     * @param timeToLiveNanos 取得した値の有効期間（ナノ秒、{@code 0}以下の場合は保持しない）
+     * @param clock 有効期間の判定に使用する{@link Clock}
+     */
+    MBeanAttributeSnapshot(MBeanServer server, ObjectName objectName, List<String> attributes, long timeToLiveNanos, Clock clock) {
+        this.server = server;
+        this.objectName = objectName;
+        this.attributes = attributes.toArray(new String[0]);
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.clock = clock;
+        this.values = new Object[this.attributes.length];
+    }
+
+    /**
+     * 属性の値を取得する。
+     * @param index 属性のインデックス（コンストラクタで渡したリストでの位置）
+     * @return 属性の値（取得できなかった場合は{@code null}）
+     */
+    synchronized Object get(int index) {
+        if (isExpired()) {
+            sample();
+        }
+        return values[index];
+    }
+
+    /**
+     * 保持している値の有効期間が経過しているか判定する。
+     * @return 取得しなおす必要がある場合は{@code true}
+     */
+    private boolean isExpired() {
+        return !sampled
+                || timeToLiveNanos <= 0
+                || timeToLiveNanos <= clock.monotonicTime() - sampledTime;
+    }
+
+    /**
+     * 全ての属性の値を取得しなおす。
+     */
+    private void sample() {
+        AttributeList attributeList;
+        try {
+            attributeList = server.getAttributes(objectName, attributes);
+        } catch (JMException e) {
+            throw new RuntimeException(e);
+        }
+
+        for (int i = 0; i < attributes.length; i++) {
+            values[i] = null;
+        }
+        for (Attribute attribute : attributeList.asList()) {
+            for (int i = 0; i < attributes.length; i++) {
+                if (attributes[i].equals(attribute.getName())) {
+                    values[i] = attribute.getValue();
+                }
+            }
+        }
+        sampled = true;
+        sampledTime = clock.monotonicTime();
+    }
+}
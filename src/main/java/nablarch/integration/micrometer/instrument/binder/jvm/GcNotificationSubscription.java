@@ -0,0 +1,94 @@
+package nablarch.integration.micrometer.instrument.binder.jvm;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.Closeable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link GarbageCollectorMXBean}が発行するGCの通知を購読するクラス。
+ * <p>
+ * {@link #subscribe(Consumer)}で、通知を発行する全ての{@link GarbageCollectorMXBean}にリスナーを登録する。<br>
+ * {@link #close()}を呼び出すと、登録したリスナーを全て削除する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+final class GcNotificationSubscription implements Closeable {
+    /** GCの通知を表すクラスの完全修飾名。 */
+    private static final String NOTIFICATION_INFO_CLASS_NAME = "com.sun.management.GarbageCollectionNotificationInfo";
+
+    /** リスナーを登録した{@link NotificationEmitter}。 */
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    /** 登録したリスナー。 */
+    private final NotificationListener listener;
+
+    /**
+     * コンストラクタ。
+     * @param listener 登録するリスナー
+     */
+    private GcNotificationSubscription(NotificationListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * GCの通知を利用できるかどうかを判定する。
+     * <p>
+     * GCの通知は{@code jdk.management}モジュールのクラスを使用するため、実行環境によっては利用できない。
+     * </p>
+     * @return 利用できる場合は{@code true}
+     */
+    static boolean isAvailable() {
+        try {
+            Class.forName(NOTIFICATION_INFO_CLASS_NAME, false, GcNotificationSubscription.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * GCの通知の購読を開始する。
+     * @param consumer 通知を受け取る処理
+     * @return 購読
+     */
+    static GcNotificationSubscription subscribe(Consumer<GarbageCollectionNotificationInfo> consumer) {
+        NotificationListener listener = (notification, handback) ->
+                consumer.accept(GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()));
+        NotificationFilter filter = notification ->
+                GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType());
+
+        GcNotificationSubscription subscription = new GcNotificationSubscription(listener);
+        for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (garbageCollectorMXBean instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) garbageCollectorMXBean;
+                emitter.addNotificationListener(listener, filter, null);
+                subscription.emitters.add(emitter);
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * 購読を終了し、登録したリスナーを全て削除する。
+     */
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                // 既に削除されている場合は何もしない
+            }
+        }
+        emitters.clear();
+    }
+}
@@ -0,0 +1,278 @@
+package nablarch.integration.micrometer.instrument.binder.jvm;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.util.annotation.Published;
+import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * GCの通知に含まれるGC前後のメモリ使用量から、メモリの割り当て量と昇格量をカウントする{@link MeterBinder}。
+ * <p>
+ * 以下のメトリクスが登録される。単位時間あたりの増加量が、それぞれ割り当て速度と昇格速度になる。
+ * <ul>
+ *   <li>{@code jvm.gc.allocated}: 前回のGCの後から今回のGCの前までに、Young領域（単一世代のGCではヒープ全体）に割り当てられたバイト数</li>
+ *   <li>{@code jvm.gc.promoted}: マイナーGCでOld領域に昇格したバイト数</li>
+ * </ul>
+ * 各メトリクスには、GCを行ったメモリマネージャの名前が {@code memory.manager.name} タグで設定される。
+ * </p>
+ * <p>
+ * Young領域とOld領域のメモリプールは、{@link #bindTo(MeterRegistry)}のときに名前から判定する。
+ * 名前から判定できず、ヒープのメモリプールが1つだけの場合は、そのメモリプールを単一世代のヒープとして扱う。<br>
+ * ZGCやShenandoahのような単一世代のGCでは昇格量は記録しない。
+ * また、停止とサイクルの両方を通知するGCでは、重複して数えないようにサイクルの通知だけを使う。<br>
+ * 割り当て量は、{@link #bindTo(MeterRegistry)}のときのメモリプールの使用量を起点に数える。<br>
+ * 実行環境でGCの通知が利用できない場合は、何も記録しない。
+ * 割り当て量を求めるメモリプールを判定できない場合は、警告ログを一度だけ出力して何も記録しない。
+ * </p>
+ * <p>
+ * {@link #close()}を呼び出すと、GCの通知の購読を終了する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+@Published(tag = "architect")
+public class NablarchGcAllocationMetrics implements MeterBinder, Closeable {
+    /** ロガー。 */
+    private static final Logger LOGGER = LoggerManager.get(NablarchGcAllocationMetrics.class);
+
+    /** 割り当て量のデフォルトのメトリクス名。 */
+    static final String DEFAULT_ALLOCATED_METRICS_NAME = "jvm.gc.allocated";
+    /** 割り当て量のデフォルトのメトリクスの説明。 */
+    static final String DEFAULT_ALLOCATED_METRICS_DESCRIPTION = "Size of memory allocated in young generation between garbage collections";
+    /** 昇格量のデフォルトのメトリクス名。 */
+    static final String DEFAULT_PROMOTED_METRICS_NAME = "jvm.gc.promoted";
+    /** 昇格量のデフォルトのメトリクスの説明。 */
+    static final String DEFAULT_PROMOTED_METRICS_DESCRIPTION = "Size of memory promoted to old generation by minor garbage collection";
+    /** マイナーGCを表すアクション。 */
+    private static final String MINOR_GC_ACTION = "end of minor GC";
+    /** 世代別ZGCのマイナーGCのサイクルを通知するメモリマネージャの名前。 */
+    private static final String ZGC_MINOR_CYCLES_NAME = "ZGC Minor Cycles";
+    /** 停止とサイクルの両方を通知するGCで、停止を通知するメモリマネージャの名前の接尾辞。 */
+    private static final String PAUSES_NAME_SUFFIX = " Pauses";
+
+    /** 割り当て量のメトリクスの設定情報。 */
+    private final MetricsMetaData allocatedMetricsMetaData;
+    /** 昇格量のメトリクスの設定情報。 */
+    private final MetricsMetaData promotedMetricsMetaData;
+    /** {@link #bindTo(MeterRegistry)}で開始したGCの通知の購読。 */
+    private final List<GcNotificationSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    /** メモリプールを判定できなかったことを警告済みかどうか。 */
+    private final AtomicBoolean poolNotFoundWarned = new AtomicBoolean(false);
+
+    /**
+     * コンストラクタ。
+     */
+    public NablarchGcAllocationMetrics() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * 追加のタグを指定するコンストラクタ。
+     * @param tags 追加で指定するタグ
+     */
+    public NablarchGcAllocationMetrics(Iterable<Tag> tags) {
+        this(new MetricsMetaData(DEFAULT_ALLOCATED_METRICS_NAME, DEFAULT_ALLOCATED_METRICS_DESCRIPTION, tags),
+             new MetricsMetaData(DEFAULT_PROMOTED_METRICS_NAME, DEFAULT_PROMOTED_METRICS_DESCRIPTION, tags));
+    }
+
+    /**
+     * 割り当て量と昇格量のメトリクス名と説明、追加のタグを{@link MetricsMetaData}で指定するコンストラクタ。
+     * @param allocatedMetricsMetaData 割り当て量のメトリクスの設定情報
+     * @param promotedMetricsMetaData 昇格量のメトリクスの設定情報
+     */
+    public NablarchGcAllocationMetrics(MetricsMetaData allocatedMetricsMetaData, MetricsMetaData promotedMetricsMetaData) {
+        this.allocatedMetricsMetaData = allocatedMetricsMetaData;
+        this.promotedMetricsMetaData = promotedMetricsMetaData;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!GcNotificationSubscription.isAvailable()) {
+            return;
+        }
+
+        MemoryPoolMXBean youngGenPool = null;
+        MemoryPoolMXBean oldGenPool = null;
+        MemoryPoolMXBean nonGenerationalPool = null;
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPoolMXBean.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            heapPools.add(memoryPoolMXBean);
+            String name = memoryPoolMXBean.getName();
+            if (name.endsWith("Eden Space") || name.endsWith("Young Generation")) {
+                youngGenPool = memoryPoolMXBean;
+            } else if (name.endsWith("Old Gen") || name.endsWith("Tenured Gen") || name.endsWith("Old Generation")) {
+                oldGenPool = memoryPoolMXBean;
+            } else if ("ZHeap".equals(name) || "Shenandoah".equals(name)) {
+                nonGenerationalPool = memoryPoolMXBean;
+            }
+        }
+        if (youngGenPool == null && nonGenerationalPool == null && heapPools.size() == 1) {
+            nonGenerationalPool = heapPools.get(0);
+        }
+
+        AllocationRecorder recorder;
+        if (youngGenPool != null) {
+            recorder = new AllocationRecorder(registry, youngGenPool, oldGenPool);
+        } else if (nonGenerationalPool != null) {
+            recorder = new AllocationRecorder(registry, nonGenerationalPool, null);
+        } else {
+            warnPoolNotFound(heapPools);
+            return;
+        }
+        subscriptions.add(GcNotificationSubscription.subscribe(recorder::record));
+    }
+
+    /**
+     * 割り当て量を求めるメモリプールを判定できなかったことを、一度だけ警告ログに出力する。
+     * @param heapPools ヒープのメモリプール
+     */
+    private void warnPoolNotFound(List<MemoryPoolMXBean> heapPools) {
+        if (!poolNotFoundWarned.compareAndSet(false, true)) {
+            return;
+        }
+        List<String> heapPoolNames = new ArrayList<>();
+        for (MemoryPoolMXBean heapPool : heapPools) {
+            heapPoolNames.add(heapPool.getName());
+        }
+        LOGGER.logWarn("Memory pool to count allocated bytes is not found. GC allocation metrics are not recorded. heapPools=" + heapPoolNames);
+    }
+
+    /**
+     * GCの通知の購読を終了する。
+     */
+    @Override
+    public void close() {
+        for (GcNotificationSubscription subscription : subscriptions) {
+            subscription.close();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * {@link MeterRegistry}ごとに、GCの通知から割り当て量と昇格量を求めて記録するクラス。
+     */
+    private class AllocationRecorder {
+        /** 割り当て量を求めるメモリプールの名前。 */
+        private final String allocationPoolName;
+        /** 昇格量を求めるメモリプールの名前（単一世代のGCの場合は{@code null}）。 */
+        private final String promotionPoolName;
+        /** メモリマネージャの名前ごとの、割り当て量の{@link Counter}。 */
+        private final Map<String, Counter> allocatedCounters = new HashMap<>();
+        /** メモリマネージャの名前ごとの、昇格量の{@link Counter}。 */
+        private final Map<String, Counter> promotedCounters = new HashMap<>();
+        /** 前回のGCの後の、割り当て量を求めるメモリプールの使用量。 */
+        private long allocationPoolSizeAfterGc;
+
+        /**
+         * コンストラクタ。
+         * <p>
+         * 割り当て量を求めるメモリプールを管理するメモリマネージャごとに、{@link Counter}を登録する。<br>
+         * また、この時点のメモリプールの使用量を割り当て量の起点とする。
+         * </p>
+         * @param registry {@link Counter}を登録する{@link MeterRegistry}
+         * @param allocationPool 割り当て量を求めるメモリプール
+         * @param promotionPool 昇格量を求めるメモリプール（単一世代のGCの場合は{@code null}）
+         */
+        AllocationRecorder(MeterRegistry registry, MemoryPoolMXBean allocationPool, MemoryPoolMXBean promotionPool) {
+            this.allocationPoolName = allocationPool.getName();
+            this.promotionPoolName = promotionPool == null ? null : promotionPool.getName();
+
+            for (String gcName : allocationPool.getMemoryManagerNames()) {
+                if (gcName.endsWith(PAUSES_NAME_SUFFIX)) {
+                    // 停止の通知とサイクルの通知の両方で数えると重複するため、サイクルの通知だけを使う
+                    continue;
+                }
+                allocatedCounters.put(gcName, registerCounter(registry, allocatedMetricsMetaData, gcName));
+                if (promotionPoolName != null) {
+                    promotedCounters.put(gcName, registerCounter(registry, promotedMetricsMetaData, gcName));
+                }
+            }
+
+            MemoryUsage usage = allocationPool.getUsage();
+            this.allocationPoolSizeAfterGc = usage == null ? 0L : usage.getUsed();
+        }
+
+        /**
+         * GCの通知の内容から、割り当て量と昇格量を記録する。
+         * @param info GCの通知の内容
+         */
+        synchronized void record(GarbageCollectionNotificationInfo info) {
+            Counter allocatedCounter = allocatedCounters.get(info.getGcName());
+            if (allocatedCounter == null) {
+                return;
+            }
+
+            Map<String, MemoryUsage> before = info.getGcInfo().getMemoryUsageBeforeGc();
+            Map<String, MemoryUsage> after = info.getGcInfo().getMemoryUsageAfterGc();
+
+            MemoryUsage allocationPoolBefore = before.get(allocationPoolName);
+            MemoryUsage allocationPoolAfter = after.get(allocationPoolName);
+            if (allocationPoolBefore != null && allocationPoolAfter != null) {
+                long allocated = allocationPoolBefore.getUsed() - allocationPoolSizeAfterGc;
+                allocationPoolSizeAfterGc = allocationPoolAfter.getUsed();
+                if (0 < allocated) {
+                    allocatedCounter.increment(allocated);
+                }
+            }
+
+            Counter promotedCounter = promotedCounters.get(info.getGcName());
+            if (promotedCounter == null || !isMinorGc(info)) {
+                return;
+            }
+            MemoryUsage promotionPoolBefore = before.get(promotionPoolName);
+            MemoryUsage promotionPoolAfter = after.get(promotionPoolName);
+            if (promotionPoolBefore != null && promotionPoolAfter != null) {
+                long promoted = promotionPoolAfter.getUsed() - promotionPoolBefore.getUsed();
+                if (0 < promoted) {
+                    promotedCounter.increment(promoted);
+                }
+            }
+        }
+
+        /**
+         * マイナーGCの通知かどうかを判定する。
+         * @param info GCの通知の内容
+         * @return マイナーGCの通知の場合は{@code true}
+         */
+        private boolean isMinorGc(GarbageCollectionNotificationInfo info) {
+            return MINOR_GC_ACTION.equals(info.getGcAction()) || ZGC_MINOR_CYCLES_NAME.equals(info.getGcName());
+        }
+
+        /**
+         * メモリマネージャごとの{@link Counter}を登録する。
+         * @param registry {@link Counter}を登録する{@link MeterRegistry}
+         * @param metricsMetaData メトリクスの設定情報
+         * @param gcName メモリマネージャの名前
+         * @return {@link Counter}
+         */
+        private Counter registerCounter(MeterRegistry registry, MetricsMetaData metricsMetaData, String gcName) {
+            return Counter.builder(metricsMetaData.getName())
+                    .description(metricsMetaData.getDescription())
+                    .baseUnit(BaseUnits.BYTES)
+                    .tag("memory.manager.name", gcName)
+                    .tags(metricsMetaData.getTags())
+                    .register(registry);
+        }
+    }
+}
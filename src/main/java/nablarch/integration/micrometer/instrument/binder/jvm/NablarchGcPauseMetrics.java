@@ -0,0 +1,189 @@
+package nablarch.integration.micrometer.instrument.binder.jvm;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import nablarch.core.util.annotation.Published;
+import nablarch.integration.micrometer.instrument.MeterCache;
+import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GCによる停止時間を計測する{@link MeterBinder}。
+ * <p>
+ * {@link java.lang.management.GarbageCollectorMXBean}が発行するGCの通知を購読し、
+ * 通知に含まれるGCの所要時間を {@code jvm.gc.pause.duration} という名前の{@link Timer}で記録する。<br>
+ * 各メトリクスには、以下のタグが設定される。
+ * <ul>
+ *   <li>{@code memory.manager.name}: メモリマネージャの名前</li>
+ *   <li>{@code gc.cause}: GCの原因</li>
+ *   <li>{@code gc.action}: GCのアクション（{@code end of minor GC}など）</li>
+ * </ul>
+ * </p>
+ * <p>
+ * アプリケーションを停止させずに並行して実行されるGCのサイクル（ZGCやShenandoahの{@code Cycles}など）の通知は、
+ * 停止時間ではないため記録しない。<br>
+ * 登録した{@link Timer}は、メモリマネージャの名前、GCのアクション、GCの原因の組み合わせごとにキャッシュする。<br>
+ * 実行環境でGCの通知が利用できない場合は、何も記録しない。
+ * </p>
+ * <p>
+ * {@link #close()}を呼び出すと、GCの通知の購読を終了する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+@Published(tag = "architect")
+public class NablarchGcPauseMetrics implements MeterBinder, Closeable {
+    /** デフォルトのメトリクス名。 */
+    static final String DEFAULT_METRICS_NAME = "jvm.gc.pause.duration";
+    /** デフォルトのメトリクスの説明。 */
+    static final String DEFAULT_METRICS_DESCRIPTION = "Time spent in garbage collection pause";
+
+    /** 追加のタグ一覧。 */
+    private final Iterable<Tag> tags;
+    /** メトリクス名。 */
+    private final String metricsName;
+    /** メトリクスの説明。 */
+    private final String metricsDescription;
+    /** サービスレベル目標。 */
+    private Duration[] serviceLevelObjectives;
+    /** {@link #bindTo(MeterRegistry)}で開始したGCの通知の購読。 */
+    private final List<GcNotificationSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * コンストラクタ。
+     */
+    public NablarchGcPauseMetrics() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * メトリクス名と説明を設定するコンストラクタ。
+     * @param metricsName メトリクス名
+     * @param metricsDescription メトリクスの説明
+     */
+    public NablarchGcPauseMetrics(String metricsName, String metricsDescription) {
+        this(metricsName, metricsDescription, Collections.emptyList());
+    }
+
+    /**
+     * 追加のタグを指定するコンストラクタ。
+     * @param tags 追加で指定するタグ
+     */
+    public NablarchGcPauseMetrics(Iterable<Tag> tags) {
+        this(DEFAULT_METRICS_NAME, DEFAULT_METRICS_DESCRIPTION, tags);
+    }
+
+    /**
+     * メトリクス名と説明、追加のタグを{@link MetricsMetaData}で指定するコンストラクタ。
+     * @param metricsMetaData メトリクスの設定情報
+     */
+    public NablarchGcPauseMetrics(MetricsMetaData metricsMetaData) {
+        this(metricsMetaData.getName(), metricsMetaData.getDescription(), metricsMetaData.getTags());
+    }
+
+    /**
+     * メトリクス名と説明、追加のタグを指定するコンストラクタ。
+     * @param metricsName メトリクス名
+     * @param metricsDescription メトリクスの説明
+     * @param tags 追加で指定するタグ
+     */
+    public NablarchGcPauseMetrics(String metricsName, String metricsDescription, Iterable<Tag> tags) {
+        this.metricsName = metricsName;
+        this.metricsDescription = metricsDescription;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!GcNotificationSubscription.isAvailable()) {
+            return;
+        }
+        MeterCache<List<String>, Timer> timerCache = new MeterCache<>(registry);
+        subscriptions.add(GcNotificationSubscription.subscribe(info -> record(registry, timerCache, info)));
+    }
+
+    /**
+     * GCの通知の内容を記録する。
+     * @param registry {@link Timer}を登録する{@link MeterRegistry}
+     * @param timerCache メモリマネージャの名前、GCのアクション、GCの原因の組み合わせをキーにした{@link Timer}のキャッシュ
+     * @param info GCの通知の内容
+     */
+    private void record(MeterRegistry registry, MeterCache<List<String>, Timer> timerCache,
+                        GarbageCollectionNotificationInfo info) {
+        if (isConcurrentCycle(info)) {
+            return;
+        }
+
+        timerCache.get(List.of(info.getGcName(), info.getGcAction(), info.getGcCause()), key -> registerTimer(registry, key))
+                .record(info.getGcInfo().getDuration(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * {@link Timer}を{@link MeterRegistry}に登録する。
+     * @param registry {@link MeterRegistry}
+     * @param key メモリマネージャの名前、GCのアクション、GCの原因のリスト
+     * @return 登録した{@link Timer}
+     */
+    private Timer registerTimer(MeterRegistry registry, List<String> key) {
+        Timer.Builder builder = Timer.builder(metricsName)
+                .description(metricsDescription)
+                .tag("memory.manager.name", key.get(0))
+                .tag("gc.action", key.get(1))
+                .tag("gc.cause", key.get(2))
+                .tags(tags);
+        if (serviceLevelObjectives != null) {
+            builder.serviceLevelObjectives(serviceLevelObjectives);
+        }
+        return builder.register(registry);
+    }
+
+    /**
+     * アプリケーションと並行して実行されるGCのサイクルの通知かどうかを判定する。
+     * @param info GCの通知の内容
+     * @return 並行して実行されるGCのサイクルの通知の場合は{@code true}
+     */
+    static boolean isConcurrentCycle(GarbageCollectionNotificationInfo info) {
+        String gcName = info.getGcName();
+        return "No GC".equals(info.getGcCause())
+                || gcName.endsWith(" Cycles")
+                || "G1 Concurrent GC".equals(gcName);
+    }
+
+    /**
+     * サービスレベル目標（ミリ秒）のリストを設定する。
+     * <p>
+     * このセッターはコンポーネント定義ファイルからプロパティとして設定されることを想定している。<br>
+     * システムリポジトリによるリストプロパティの設定は総称型に応じたキャストをサポートしていないため、
+     * いったん文字列で受け取って内部で{@code long}にパースしている。
+     * </p>
+     * <p>
+     * ここで渡した値は、{@code io.micrometer.core.instrument.Timer.Builder#serviceLevelObjectives(java.time.Duration...)}の引数に渡される。
+     * </p>
+     * @param serviceLevelObjectives サービスレベル目標のリスト
+     */
+    public void setServiceLevelObjectives(List<String> serviceLevelObjectives) {
+        this.serviceLevelObjectives = serviceLevelObjectives.stream()
+                                        .map(Long::parseLong)
+                                        .map(Duration::ofMillis)
+                                        .toArray(Duration[]::new);
+    }
+
+    /**
+     * GCの通知の購読を終了する。
+     */
+    @Override
+    public void close() {
+        for (GcNotificationSubscription subscription : subscriptions) {
+            subscription.close();
+        }
+        subscriptions.clear();
+    }
+}
@@ -0,0 +1,228 @@
+package nablarch.integration.micrometer.instrument.binder.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import nablarch.core.log.basic.LogContext;
+import nablarch.core.log.basic.LogLevel;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * ログ出力のイベントを{@link LogEventRingBuffer}に書き込み、バックグラウンドのスレッドで{@link Counter}に集計するクラス。
+ * <p>
+ * ログを出力するスレッドは、ログレベルとカウンタのキー（実行時ロガー名など）のIDを{@code long}値にエンコードしてリングバッファに書き込むだけで、
+ * {@link MeterRegistry}には一切アクセスしない。<br>
+ * リングバッファが一杯で書き込めなかったイベントは破棄し、その件数を別の{@link Counter}で記録する。
+ * </p>
+ * <p>
+ * 例外クラスやメッセージIDのタグを設定する場合は、{@link LogContext}をそのままリングバッファに書き込み、
+ * タグの値の解決（メッセージIDの正規表現による抽出など）は集計スレッドで行う。
+ * </p>
+ * <p>
+ * 集計スレッドは、読み出すイベントが無い場合は待機を宣言してから{@link LockSupport#park(Object)}で待機する。<br>
+ * ログを出力するスレッドは、イベントを書き込んだときに集計スレッドが待機を宣言していれば、
+ * {@link LockSupport#unpark(Thread)}で起こす。
+ * したがって、イベントが無い間に集計スレッドが定期的に起きることはない。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+class AsyncLogCountAggregator {
+    /** 集計スレッドの名前。 */
+    static final String THREAD_NAME = "nablarch-log-count-metrics";
+    /** エンコードした値のうち、ログレベルを表すビット数。 */
+    private static final int LEVEL_BITS = 8;
+
+    /** {@link Counter}を登録する処理。 */
+    private final CounterRegistrar counterRegistrar;
+    /** {@link LogContext}からカウンタのキーを解決する処理。 */
+    private final Function<LogContext, Object> counterKeyResolver;
+    /** ログ出力のイベントを格納するリングバッファ。 */
+    private final LogEventRingBuffer ringBuffer;
+    /** 破棄したイベントの件数を記録する{@link Counter}。 */
+    private final Counter droppedCounter;
+
+    /** カウンタのキーごとのID。 */
+    private final ConcurrentMap<Object, Integer> counterKeyIds = new ConcurrentHashMap<>();
+    /** IDごとのカウンタのキー。 */
+    private final ConcurrentMap<Integer, Object> counterKeys = new ConcurrentHashMap<>();
+    /** 次に払い出すID。 */
+    private final AtomicInteger nextCounterKeyId = new AtomicInteger();
+    /** エンコードした値ごとの{@link Counter}（集計スレッドからのみ参照する）。 */
+    private final Map<Long, Counter> counters = new HashMap<>();
+    /** 集計スレッドで解決したカウンタのキーごとの{@link Counter}（集計スレッドからのみ参照する）。 */
+    private final Map<LogLevel, Map<Object, Counter>> resolvedCounters = new EnumMap<>(LogLevel.class);
+
+    /** 集計スレッド。 */
+    private final Thread aggregatorThread;
+    /** 集計スレッドを実行中かどうか。 */
+    private volatile boolean running = true;
+    /** 集計スレッドが待機を宣言しているかどうか。 */
+    private final AtomicBoolean waiting = new AtomicBoolean();
+
+    /**
+     * コンストラクタ。
+     * <p>
+     * インスタンスを生成した時点で、集計スレッドを開始する。
+     * </p>
+     * @param counterRegistrar {@link Counter}を登録する処理
+     * @param counterKeyResolver {@link LogContext}からカウンタのキーを解決する処理
+     * @param bufferSize リングバッファの容量
+     * @param droppedCounter 破棄したイベントの件数を記録する{@link Counter}
+     */
+    AsyncLogCountAggregator(CounterRegistrar counterRegistrar, Function<LogContext, Object> counterKeyResolver,
+                            int bufferSize, Counter droppedCounter) {
+        this.counterRegistrar = counterRegistrar;
+        this.counterKeyResolver = counterKeyResolver;
+        this.ringBuffer = new LogEventRingBuffer(bufferSize);
+        this.droppedCounter = droppedCounter;
+
+        aggregatorThread = new Thread(this::run, THREAD_NAME);
+        aggregatorThread.setDaemon(true);
+        aggregatorThread.start();
+    }
+
+    /**
+     * ログ出力のイベントを書き込む。
+     * @param level ログレベル
+     * @param counterKey カウンタのキー
+     */
+    void offer(LogLevel level, Object counterKey) {
+        long event = ((long) counterKeyId(counterKey) << LEVEL_BITS) | level.ordinal();
+        write(event, null);
+    }
+
+    /**
+     * カウンタのキーを集計スレッドで解決するログ出力のイベントを書き込む。
+     * @param logContext {@link LogContext}
+     */
+    void offer(LogContext logContext) {
+        write(logContext.getLevel().ordinal(), logContext);
+    }
+
+    /**
+     * エンコードしたイベントを書き込み、集計スレッドが待機していれば起こす。
+     * @param event エンコードしたイベント
+     * @param logContext 集計スレッドでカウンタのキーを解決する場合は{@link LogContext}、それ以外は{@code null}
+     */
+    private void write(long event, LogContext logContext) {
+        if (!ringBuffer.offer(event, logContext)) {
+            droppedCounter.increment();
+            return;
+        }
+        if (waiting.get() && waiting.compareAndSet(true, false)) {
+            LockSupport.unpark(aggregatorThread);
+        }
+    }
+
+    /**
+     * カウンタのキーのIDを取得する。
+     * @param counterKey カウンタのキー
+     * @return カウンタのキーのID
+     */
+    private int counterKeyId(Object counterKey) {
+        Integer id = counterKeyIds.get(counterKey);
+        if (id != null) {
+            return id;
+        }
+        return counterKeyIds.computeIfAbsent(counterKey, key -> {
+            int newId = nextCounterKeyId.getAndIncrement();
+            counterKeys.put(newId, key);
+            return newId;
+        });
+    }
+
+    /**
+     * 集計スレッドの処理。
+     */
+    private void run() {
+        while (running) {
+            if (drain() == 0) {
+                // 待機を宣言した後にもう一度読み出すことで、宣言の直前に書き込まれたイベントを取りこぼさない
+                waiting.set(true);
+                if (drain() == 0 && running) {
+                    LockSupport.park(this);
+                }
+                waiting.set(false);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * リングバッファに書き込まれているイベントをすべて集計する。
+     * @return 集計したイベントの件数
+     */
+    private int drain() {
+        return ringBuffer.drain(this::count);
+    }
+
+    /**
+     * イベントを集計する。
+     * @param event エンコードしたイベント
+     * @param logContext 集計スレッドでカウンタのキーを解決する場合は{@link LogContext}、それ以外は{@code null}
+     */
+    private void count(long event, LogContext logContext) {
+        if (logContext != null) {
+            countResolved(logContext);
+            return;
+        }
+        Counter counter = counters.get(event);
+        if (counter == null) {
+            LogLevel level = LogLevel.values()[(int) (event & ((1 << LEVEL_BITS) - 1))];
+            Object counterKey = counterKeys.get((int) (event >>> LEVEL_BITS));
+            counter = counterRegistrar.register(level, counterKey);
+            counters.put(event, counter);
+        }
+        counter.increment();
+    }
+
+    /**
+     * {@link LogContext}からカウンタのキーを解決して集計する。
+     * @param logContext {@link LogContext}
+     */
+    private void countResolved(LogContext logContext) {
+        LogLevel level = logContext.getLevel();
+        Object counterKey = counterKeyResolver.apply(logContext);
+        resolvedCounters.computeIfAbsent(level, key -> new HashMap<>())
+                .computeIfAbsent(counterKey, key -> counterRegistrar.register(level, key))
+                .increment();
+    }
+
+    /**
+     * 集計スレッドを停止する。
+     * <p>
+     * 集計スレッドは、停止する前にリングバッファに残っているイベントを集計する。
+     * </p>
+     */
+    void close() {
+        running = false;
+        LockSupport.unpark(aggregatorThread);
+        try {
+            aggregatorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * {@link Counter}を登録する処理。
+     */
+    @FunctionalInterface
+    interface CounterRegistrar {
+        /**
+         * {@link Counter}を登録する。
+         * @param level ログレベル
+         * @param counterKey カウンタのキー
+         * @return 登録した{@link Counter}
+         */
+        Counter register(LogLevel level, Object counterKey);
+    }
+}
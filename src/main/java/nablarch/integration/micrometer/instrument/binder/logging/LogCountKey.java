@@ -0,0 +1,82 @@
+package nablarch.integration.micrometer.instrument.binder.logging;
+
+import java.util.Objects;
+
+/**
+ * 例外クラスやメッセージIDのタグを設定する場合に、{@link LogCountMetrics}が{@link io.micrometer.core.instrument.Counter Counter}
+ * をキャッシュするときのキー。
+ * <p>
+ * タグを設定しない値は{@code null}になる。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+final class LogCountKey {
+    /** 実行時ロガー名。 */
+    private final String runtimeLoggerName;
+    /** 例外クラスのタグの値。 */
+    private final String exception;
+    /** メッセージIDのタグの値。 */
+    private final String messageId;
+    /** ハッシュ値。 */
+    private final int hash;
+
+    /**
+     * コンストラクタ。
+     * @param runtimeLoggerName 実行時ロガー名
+     * @param exception 例外クラスのタグの値
+     * @param messageId メッセージIDのタグの値
+     */
+    LogCountKey(String runtimeLoggerName, String exception, String messageId) {
+        this.runtimeLoggerName = runtimeLoggerName;
+        this.exception = exception;
+        this.messageId = messageId;
+        int result = runtimeLoggerName.hashCode();
+        result = 31 * result + Objects.hashCode(exception);
+        result = 31 * result + Objects.hashCode(messageId);
+        this.hash = result;
+    }
+
+    /**
+     * 実行時ロガー名を取得する。
+     * @return 実行時ロガー名
+     */
+    String getRuntimeLoggerName() {
+        return runtimeLoggerName;
+    }
+
+    /**
+     * 例外クラスのタグの値を取得する。
+     * @return 例外クラスのタグの値（タグを設定しない場合は{@code null}）
+     */
+    String getException() {
+        return exception;
+    }
+
+    /**
+     * メッセージIDのタグの値を取得する。
+     * @return メッセージIDのタグの値（タグを設定しない場合は{@code null}）
+     */
+    String getMessageId() {
+        return messageId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LogCountKey)) {
+            return false;
+        }
+        LogCountKey that = (LogCountKey) o;
+        return hash == that.hash
+                && runtimeLoggerName.equals(that.runtimeLoggerName)
+                && Objects.equals(exception, that.exception)
+                && Objects.equals(messageId, that.messageId);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -1,15 +1,31 @@
 package nablarch.integration.micrometer.instrument.binder.logging;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.binder.MeterBinder;
+import nablarch.core.log.basic.LogContext;
 import nablarch.core.log.basic.LogLevel;
 import nablarch.core.log.basic.LogListener;
 import nablarch.core.log.basic.LogPublisher;
 import nablarch.core.util.annotation.Published;
+import nablarch.integration.micrometer.instrument.ExceptionTagResolver;
+import nablarch.integration.micrometer.instrument.MeterCache;
+import nablarch.integration.micrometer.instrument.TagValueLimiter;
 import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
 
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * ログレベルごとのログ出力回数をメトリクスとして収集する{@link MeterBinder}。
@@ -24,6 +40,45 @@ import java.io.Closeable;
  * <p>
  * デフォルトでは{@code WARN}以上のログのみを集計する。<br>
  * </p>
+ * <p>
+ * 登録した{@link Counter}は、集計対象のログレベルごとに実行時ロガー名をキーとしてキャッシュする。<br>
+ * これにより、ログ出力のたびに{@link Counter}を登録しなおすことなく、キャッシュの検索とカウントアップだけで計測できる。
+ * </p>
+ * <p>
+ * {@link #setStripedCounterEnabled(boolean)}で{@code true}を設定した場合は、
+ * ログ出力の回数をスレッドごとに分散して保持する{@link LongAdder}で数え、
+ * {@link MeterRegistry}が値を収集するときにだけ{@link FunctionCounter}で合計する。<br>
+ * 多数のスレッドが同時にログを出力する環境で、カウントアップの競合を減らしたい場合に使用する。
+ * </p>
+ * <p>
+ * {@link #setAsyncEnabled(boolean)}で{@code true}を設定した場合は、ログ出力のイベントを容量固定のリングバッファに書き込み、
+ * バックグラウンドのスレッドで{@link Counter}に集計する。<br>
+ * ログを出力するスレッドは{@link MeterRegistry}にアクセスしなくなる代わりに、メトリクスへの反映が少し遅れる。<br>
+ * リングバッファが一杯で書き込めなかったイベントは破棄し、その件数を{@code <メトリクス名>.dropped}という名前の{@link Counter}で記録する。<br>
+ * 例外クラスやメッセージIDのタグを設定する場合は、タグの値の解決も集計スレッドで行う。<br>
+ * この設定は、{@link #setStripedCounterEnabled(boolean)}より優先される。
+ * </p>
+ * <p>
+ * {@link #bindTo(MeterRegistry)}を複数回呼び出した場合は、呼び出しごとに{@link LogListener}（非同期の場合は集計スレッドも）を生成する。<br>
+ * {@link #close()}は、それらをすべて削除（停止）する。
+ * </p>
+ * <p>
+ * 以下のタグを追加で設定することもできる。
+ * <ul>
+ *   <li>{@code exception}: ログに設定された例外クラスの単純名(例外が無い場合は{@code "None"})。
+ *       {@link #setExceptionTagEnabled(boolean)}で{@code true}を設定した場合に設定される。
+ *       値の種類は{@link ExceptionTagResolver}で制限する。</li>
+ *   <li>{@code message.id}: ログのメッセージから抽出したメッセージID(抽出できない場合は{@code "None"})。
+ *       {@link #setMessageIdTagEnabled(boolean)}で{@code true}を設定した場合に設定される。
+ *       メッセージIDは、{@link #setMessageIdPattern(String)}で設定した正規表現の最初のグループで抽出する
+ *       (デフォルトは障害ログの{@code fail_code = [<メッセージID>]}に一致する正規表現)。<br>
+ *       {@link LogContext}はメッセージIDを項目として持たないため、フォーマット済みのメッセージから抽出している。
+ *       そのため、デフォルトの正規表現でメッセージIDを抽出できるのは、Nablarchの障害ログ
+ *       ({@code nablarch.core.log.app.FailureLogFormatter})でフォーマットしたメッセージだけである。
+ *       それ以外のメッセージは、内容に関わらず全て{@code "None"}になるため、メッセージごとにタグの値が増えることはない。<br>
+ *       値の種類は{@link TagValueLimiter}で制限し、上限を超えた場合は{@value TagValueLimiter#OTHER}になる。</li>
+ * </ul>
+ * </p>
  * @author Tanaka Tomoyuki
  */
 @Published(tag = "architect")
@@ -39,19 +94,58 @@ public class LogCountMetrics implements MeterBinder, Closeable {
     static final String TAG_NAME_LEVEL = "level";
     /** 実行時ロガー名のタグ名。 */
     static final String TAG_NAME_RUNTIME_LOGGER = "logger";
+    /** 破棄したイベントの件数のメトリクス名に付ける接尾辞。 */
+    static final String DROPPED_METRICS_NAME_SUFFIX = ".dropped";
+    /** 破棄したイベントの件数のメトリクスの説明。 */
+    static final String DROPPED_METRICS_DESCRIPTION = "Number of logging events dropped because the buffer was full.";
+    /** デフォルトのリングバッファの容量。 */
+    static final int DEFAULT_ASYNC_BUFFER_SIZE = 8192;
+    /** 例外クラスのタグ名。 */
+    static final String TAG_NAME_EXCEPTION = "exception";
+    /** メッセージIDのタグ名。 */
+    static final String TAG_NAME_MESSAGE_ID = "message.id";
+    /** 例外クラスやメッセージIDが無い場合に設定されるタグの値。 */
+    static final String TAG_VALUE_NONE = "None";
+    /** メッセージIDを抽出するデフォルトの正規表現。 */
+    static final String DEFAULT_MESSAGE_ID_PATTERN = "fail_code = \\[([^\\]]+)\\]";
 
     /** 収集対象となるログレベルのしきい値。 */
     private final LogLevel thresholdOfLogLevel;
     /** メトリクスのメタ情報。 */
     private final MetricsMetaData metricsMetaData;
     /**
-     * {@link LogPublisher} に設定する {@link LogListener} のキャッシュ。
+     * {@link LogPublisher} に設定した {@link LogListener} のリスト。
      * <p>
      * {@link #close()} のときに {@link LogPublisher#removeListener(LogListener)} で削除できるようにするため、
      * フィールドで保持している。
      * </p>
      */
-    private LogListener logListener;
+    private final List<LogListener> logListeners = new ArrayList<>();
+    /**
+     * 実行時ロガー名などをキーにした{@link Counter}のキャッシュのリスト。
+     * <p>
+     * {@link #bindTo(MeterRegistry)}で集計対象のログレベルの分だけ生成し、{@link #close()}でクリアする。
+     * </p>
+     */
+    private final List<MeterCache<Object, Counter>> counterCaches = new ArrayList<>();
+    /** ログ出力の回数をスレッドごとに分散して数えるかどうか。 */
+    private boolean stripedCounterEnabled;
+    /** ログ出力のイベントを非同期で集計するかどうか。 */
+    private boolean asyncEnabled;
+    /** 非同期で集計する場合のリングバッファの容量。 */
+    private int asyncBufferSize = DEFAULT_ASYNC_BUFFER_SIZE;
+    /** 非同期で集計する場合の{@link AsyncLogCountAggregator}のリスト。 */
+    private final List<AsyncLogCountAggregator> asyncAggregators = new ArrayList<>();
+    /** 例外クラスのタグを設定するかどうか。 */
+    private boolean exceptionTagEnabled;
+    /** {@code exception}タグの値を解決する{@link ExceptionTagResolver}。 */
+    private final ExceptionTagResolver exceptionTagResolver = new ExceptionTagResolver();
+    /** メッセージIDのタグを設定するかどうか。 */
+    private boolean messageIdTagEnabled;
+    /** メッセージIDを抽出する正規表現。 */
+    private Pattern messageIdPattern = Pattern.compile(DEFAULT_MESSAGE_ID_PATTERN);
+    /** {@code message.id}タグの値の種類を制限する{@link TagValueLimiter}。 */
+    private final TagValueLimiter messageIdTagLimiter = new TagValueLimiter();
 
     /**
      * デフォルトコンストラクタ。
@@ -98,26 +192,335 @@ public class LogCountMetrics implements MeterBinder, Closeable {
     }
 
     @Override
-    public void bindTo(MeterRegistry registry) {
-        logListener = logContext -> {
-            if (thresholdOfLogLevel.getValue() < logContext.getLevel().getValue()) {
+    public synchronized void bindTo(MeterRegistry registry) {
+        LogListener logListener;
+        if (asyncEnabled) {
+            logListener = createAsyncListener(registry);
+        } else if (stripedCounterEnabled) {
+            logListener = createStripedCounterListener(registry);
+        } else {
+            logListener = createCounterListener(registry);
+        }
+        logListeners.add(logListener);
+        LogPublisher.addListener(logListener);
+    }
+
+    /**
+     * キャッシュした{@link Counter}でログ出力の回数を数える{@link LogListener}を生成する。
+     * @param registry {@link MeterRegistry}
+     * @return 生成した{@link LogListener}
+     */
+    private LogListener createCounterListener(MeterRegistry registry) {
+        Map<LogLevel, MeterCache<Object, Counter>> caches = new EnumMap<>(LogLevel.class);
+        for (LogLevel level : LogLevel.values()) {
+            if (level.getValue() <= thresholdOfLogLevel.getValue()) {
+                caches.put(level, new MeterCache<>(registry));
+            }
+        }
+        counterCaches.addAll(caches.values());
+
+        return logContext -> {
+            LogLevel level = logContext.getLevel();
+            MeterCache<Object, Counter> cache = caches.get(level);
+            if (cache == null) {
                 return;
             }
 
-            Counter.builder(metricsMetaData.getName())
-                    .tag(TAG_NAME_LEVEL, logContext.getLevel().name())
-                    .tag(TAG_NAME_RUNTIME_LOGGER, logContext.getRuntimeLoggerName())
-                    .tags(metricsMetaData.getTags())
-                    .description(metricsMetaData.getDescription())
-                    .register(registry)
+            cache.get(counterKey(logContext), key -> registerCounter(registry, level, key))
                     .increment();
         };
+    }
 
-        LogPublisher.addListener(logListener);
+    /**
+     * ログ出力のイベントを{@link AsyncLogCountAggregator}に書き込む{@link LogListener}を生成する。
+     * @param registry {@link MeterRegistry}
+     * @return 生成した{@link LogListener}
+     */
+    private LogListener createAsyncListener(MeterRegistry registry) {
+        Counter droppedCounter = Counter.builder(metricsMetaData.getName() + DROPPED_METRICS_NAME_SUFFIX)
+                .tags(metricsMetaData.getTags())
+                .description(DROPPED_METRICS_DESCRIPTION)
+                .register(registry);
+        AsyncLogCountAggregator aggregator = new AsyncLogCountAggregator(
+                (level, key) -> registerCounter(registry, level, key), this::counterKey, asyncBufferSize, droppedCounter);
+        asyncAggregators.add(aggregator);
+
+        if (exceptionTagEnabled || messageIdTagEnabled) {
+            // タグの値の解決は集計スレッドで行う
+            return logContext -> {
+                if (thresholdOfLogLevel.getValue() < logContext.getLevel().getValue()) {
+                    return;
+                }
+                aggregator.offer(logContext);
+            };
+        }
+        return logContext -> {
+            LogLevel level = logContext.getLevel();
+            if (thresholdOfLogLevel.getValue() < level.getValue()) {
+                return;
+            }
+            aggregator.offer(level, logContext.getRuntimeLoggerName());
+        };
+    }
+
+    /**
+     * {@link LongAdder}でログ出力の回数を数える{@link LogListener}を生成する。
+     * <p>
+     * {@link LongAdder}は、初めて出現したログレベルとタグの値の組み合わせごとに生成し、
+     * 同時に{@link FunctionCounter}として{@link MeterRegistry}に登録する。
+     * </p>
+     * @param registry {@link MeterRegistry}
+     * @return 生成した{@link LogListener}
+     */
+    private LogListener createStripedCounterListener(MeterRegistry registry) {
+        Map<LogLevel, ConcurrentMap<Object, LongAdder>> adders = new EnumMap<>(LogLevel.class);
+        for (LogLevel level : LogLevel.values()) {
+            if (level.getValue() <= thresholdOfLogLevel.getValue()) {
+                adders.put(level, new ConcurrentHashMap<>());
+            }
+        }
+
+        return logContext -> {
+            LogLevel level = logContext.getLevel();
+            ConcurrentMap<Object, LongAdder> addersOfLevel = adders.get(level);
+            if (addersOfLevel == null) {
+                return;
+            }
+
+            Object counterKey = counterKey(logContext);
+            LongAdder adder = addersOfLevel.get(counterKey);
+            if (adder == null) {
+                adder = addersOfLevel.computeIfAbsent(counterKey,
+                        key -> registerFunctionCounter(registry, level, key, new LongAdder()));
+            }
+            adder.increment();
+        };
+    }
+
+    /**
+     * {@link LongAdder}の値を返す{@link FunctionCounter}を{@link MeterRegistry}に登録する。
+     * @param registry {@link MeterRegistry}
+     * @param level ログレベル
+     * @param counterKey {@link #counterKey(LogContext)}で取得したキー
+     * @param adder ログ出力の回数を数える{@link LongAdder}
+     * @return {@code adder}
+     */
+    private LongAdder registerFunctionCounter(MeterRegistry registry, LogLevel level, Object counterKey, LongAdder adder) {
+        FunctionCounter.builder(metricsMetaData.getName(), adder, LongAdder::doubleValue)
+                .tag(TAG_NAME_LEVEL, level.name())
+                .tags(keyTags(counterKey))
+                .tags(metricsMetaData.getTags())
+                .description(metricsMetaData.getDescription())
+                .register(registry);
+        return adder;
     }
 
+    /**
+     * {@link Counter}を{@link MeterRegistry}に登録する。
+     * @param registry {@link MeterRegistry}
+     * @param level ログレベル
+     * @param counterKey {@link #counterKey(LogContext)}で取得したキー
+     * @return 登録した{@link Counter}
+     */
+    private Counter registerCounter(MeterRegistry registry, LogLevel level, Object counterKey) {
+        return Counter.builder(metricsMetaData.getName())
+                .tag(TAG_NAME_LEVEL, level.name())
+                .tags(keyTags(counterKey))
+                .tags(metricsMetaData.getTags())
+                .description(metricsMetaData.getDescription())
+                .register(registry);
+    }
+
+    /**
+     * ログ出力の回数を数えるカウンタのキーを取得する。
+     * <p>
+     * 例外クラスとメッセージIDのタグをどちらも設定しない場合は、実行時ロガー名そのものをキーにする。<br>
+     * それ以外の場合は、タグの値を保持した{@link LogCountKey}をキーにする。
+     * </p>
+     * @param logContext {@link LogContext}
+     * @return カウンタのキー
+     */
+    private Object counterKey(LogContext logContext) {
+        if (!exceptionTagEnabled && !messageIdTagEnabled) {
+            return logContext.getRuntimeLoggerName();
+        }
+        return new LogCountKey(logContext.getRuntimeLoggerName(),
+                exceptionTagEnabled ? resolveExceptionTagValue(logContext.getError()) : null,
+                messageIdTagEnabled ? resolveMessageIdTagValue(logContext.getMessage()) : null);
+    }
+
+    /**
+     * {@code exception}タグの値を解決する。
+     * @param error ログに設定された例外
+     * @return {@code exception}タグの値
+     */
+    private String resolveExceptionTagValue(Throwable error) {
+        return error == null ? TAG_VALUE_NONE : exceptionTagResolver.resolve(error.getClass());
+    }
+
+    /**
+     * {@code message.id}タグの値を解決する。
+     * @param message ログのメッセージ
+     * @return {@code message.id}タグの値
+     */
+    private String resolveMessageIdTagValue(String message) {
+        if (message == null) {
+            return TAG_VALUE_NONE;
+        }
+        Matcher matcher = messageIdPattern.matcher(message);
+        if (!matcher.find()) {
+            return TAG_VALUE_NONE;
+        }
+        return messageIdTagLimiter.limit(matcher.group(1));
+    }
+
+    /**
+     * カウンタのキーからタグを生成する。
+     * @param counterKey {@link #counterKey(LogContext)}で取得したキー
+     * @return タグ
+     */
+    private static Tags keyTags(Object counterKey) {
+        if (!(counterKey instanceof LogCountKey)) {
+            return Tags.of(TAG_NAME_RUNTIME_LOGGER, (String) counterKey);
+        }
+
+        LogCountKey key = (LogCountKey) counterKey;
+        Tags tags = Tags.of(TAG_NAME_RUNTIME_LOGGER, key.getRuntimeLoggerName());
+        if (key.getException() != null) {
+            tags = tags.and(Tag.of(TAG_NAME_EXCEPTION, key.getException()));
+        }
+        if (key.getMessageId() != null) {
+            tags = tags.and(Tag.of(TAG_NAME_MESSAGE_ID, key.getMessageId()));
+        }
+        return tags;
+    }
+
+    /**
+     * ログ出力の回数をスレッドごとに分散して数えるかどうかを設定する。
+     * <p>
+     * デフォルトは{@code false}。<br>
+     * {@code true}を設定した場合、メトリクスは{@link Counter}ではなく{@link FunctionCounter}として登録される。<br>
+     * この設定は、{@link #bindTo(MeterRegistry)}を呼び出す前に行うこと。
+     * </p>
+     * @param stripedCounterEnabled スレッドごとに分散して数える場合は{@code true}
+     */
+    public void setStripedCounterEnabled(boolean stripedCounterEnabled) {
+        this.stripedCounterEnabled = stripedCounterEnabled;
+    }
+
+    /**
+     * ログ出力のイベントを非同期で集計するかどうかを設定する。
+     * <p>
+     * デフォルトは{@code false}。<br>
+     * この設定は、{@link #bindTo(MeterRegistry)}を呼び出す前に行うこと。
+     * </p>
+     * @param asyncEnabled 非同期で集計する場合は{@code true}
+     */
+    public void setAsyncEnabled(boolean asyncEnabled) {
+        this.asyncEnabled = asyncEnabled;
+    }
+
+    /**
+     * 非同期で集計する場合のリングバッファの容量を設定する。
+     * <p>
+     * 容量は、指定された値以上の最小の2のべき乗になる（最小は2）。<br>
+     * 未設定の場合は{@value #DEFAULT_ASYNC_BUFFER_SIZE}になる。
+     * </p>
+     * @param asyncBufferSize リングバッファの容量
+     */
+    public void setAsyncBufferSize(int asyncBufferSize) {
+        this.asyncBufferSize = asyncBufferSize;
+    }
+
+    /**
+     * ログに設定された例外クラスのタグを設定するかどうかを設定する。
+     * <p>
+     * デフォルトは{@code false}。<br>
+     * この設定は、{@link #bindTo(MeterRegistry)}を呼び出す前に行うこと。
+     * </p>
+     * @param exceptionTagEnabled 例外クラスのタグを設定する場合は{@code true}
+     */
+    public void setExceptionTagEnabled(boolean exceptionTagEnabled) {
+        this.exceptionTagEnabled = exceptionTagEnabled;
+    }
+
+    /**
+     * {@code exception}タグの値として使用する例外クラスの種類の上限を設定する。
+     * <p>
+     * 未設定の場合は{@value ExceptionTagResolver#DEFAULT_MAX_DISTINCT_VALUES}になる。
+     * </p>
+     * @param maxExceptionTagValues 例外クラスの種類の上限
+     */
+    public void setMaxExceptionTagValues(int maxExceptionTagValues) {
+        exceptionTagResolver.setMaxDistinctValues(maxExceptionTagValues);
+    }
+
+    /**
+     * {@code exception}タグの値として単純名を使用する例外クラスの完全修飾名の許可リストを設定する。
+     * @param exceptionTagAllowList 例外クラスの完全修飾名の許可リスト
+     * @see ExceptionTagResolver#setAllowedClassNames(java.util.Collection)
+     */
+    public void setExceptionTagAllowList(List<String> exceptionTagAllowList) {
+        exceptionTagResolver.setAllowedClassNames(exceptionTagAllowList);
+    }
+
+    /**
+     * ログのメッセージから抽出したメッセージIDのタグを設定するかどうかを設定する。
+     * <p>
+     * デフォルトの正規表現では、障害ログの形式でフォーマットされたメッセージだけからメッセージIDを抽出し、
+     * それ以外のメッセージのタグの値は{@code "None"}になる。<br>
+     * デフォルトは{@code false}。<br>
+     * この設定は、{@link #bindTo(MeterRegistry)}を呼び出す前に行うこと。
+     * </p>
+     * @param messageIdTagEnabled メッセージIDのタグを設定する場合は{@code true}
+     */
+    public void setMessageIdTagEnabled(boolean messageIdTagEnabled) {
+        this.messageIdTagEnabled = messageIdTagEnabled;
+    }
+
+    /**
+     * ログのメッセージからメッセージIDを抽出する正規表現を設定する。
+     * <p>
+     * 正規表現の最初のグループに一致した文字列がメッセージIDになる。<br>
+     * 未設定の場合は{@value #DEFAULT_MESSAGE_ID_PATTERN}になる。
+     * </p>
+     * @param messageIdPattern メッセージIDを抽出する正規表現
+     */
+    public void setMessageIdPattern(String messageIdPattern) {
+        this.messageIdPattern = Pattern.compile(messageIdPattern);
+    }
+
+    /**
+     * {@code message.id}タグの値として使用するメッセージIDの種類の上限を設定する。
+     * <p>
+     * 未設定の場合は{@value TagValueLimiter#DEFAULT_MAX_DISTINCT_VALUES}になる。
+     * </p>
+     * @param maxMessageIdTagValues メッセージIDの種類の上限
+     */
+    public void setMaxMessageIdTagValues(int maxMessageIdTagValues) {
+        messageIdTagLimiter.setMaxDistinctValues(maxMessageIdTagValues);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * 非同期で集計している場合は、集計スレッドを停止する。<br>
+     * 停止する前に、リングバッファに残っているイベントは集計される。
+     * </p>
+     */
     @Override
-    public void close() {
-        LogPublisher.removeListener(logListener);
+    public synchronized void close() {
+        for (LogListener logListener : logListeners) {
+            LogPublisher.removeListener(logListener);
+        }
+        logListeners.clear();
+        for (AsyncLogCountAggregator aggregator : asyncAggregators) {
+            aggregator.close();
+        }
+        asyncAggregators.clear();
+        for (MeterCache<Object, Counter> cache : counterCaches) {
+            cache.clear();
+        }
+        counterCaches.clear();
     }
 }
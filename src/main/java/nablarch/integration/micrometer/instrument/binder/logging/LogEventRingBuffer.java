@@ -0,0 +1,129 @@
+package nablarch.integration.micrometer.instrument.binder.logging;
+
+import nablarch.core.log.basic.LogContext;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 複数のスレッドから書き込み、単一のスレッドから読み出す、容量固定のリングバッファ。
+ * <p>
+ * ログ出力のイベントを{@code long}値にエンコードしたものを格納する。
+ * 集計スレッドでタグの値を解決する必要がある場合は、{@link LogContext}も合わせて格納する。<br>
+ * 書き込みはロックを使用せず、バッファが一杯の場合は待たずに{@code false}を返す。
+ * </p>
+ * <p>
+ * 各スロットにはシーケンス番号を持たせ、書き込み側はシーケンス番号が自分の書き込み位置と一致するスロットにだけ書き込み、
+ * 読み出し側は書き込みが完了したスロットだけを読み出す。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+class LogEventRingBuffer {
+    /** 最小の容量。 */
+    private static final int MIN_CAPACITY = 2;
+    /** 容量から位置を求めるためのマスク。 */
+    private final int mask;
+    /** スロットごとのシーケンス番号。 */
+    private final AtomicLongArray sequences;
+    /** スロットに格納した値。 */
+    private final long[] values;
+    /** スロットに格納した{@link LogContext}。 */
+    private final LogContext[] contexts;
+    /** 次に書き込む位置。 */
+    private final AtomicLong tail = new AtomicLong();
+    /** 次に読み出す位置（読み出し側のスレッドからのみ参照する）。 */
+    private long head;
+
+    /**
+     * コンストラクタ。
+     * <p>
+     * 容量は、指定された値以上の最小の2のべき乗になる。
+     * ただし、容量が1だと書き込み位置と読み出し位置を区別できないため、最小の容量は2とする。
+     * </p>
+     * @param capacity 容量
+     */
+    LogEventRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive. capacity=" + capacity);
+        }
+        int actualCapacity = capacity <= MIN_CAPACITY ? MIN_CAPACITY : Integer.highestOneBit(capacity - 1) << 1;
+        mask = actualCapacity - 1;
+        sequences = new AtomicLongArray(actualCapacity);
+        values = new long[actualCapacity];
+        contexts = new LogContext[actualCapacity];
+        for (int i = 0; i < actualCapacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 値を書き込む。
+     * @param value 値
+     * @param context 値と合わせて格納する{@link LogContext}（無い場合は{@code null}）
+     * @return 書き込めた場合は{@code true}、バッファが一杯で書き込めなかった場合は{@code false}
+     */
+    boolean offer(long value, LogContext context) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    values[index] = value;
+                    contexts[index] = context;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 書き込みが完了している値をすべて読み出す。
+     * <p>
+     * このメソッドは、単一のスレッドからのみ呼び出すこと。<br>
+     * 読み出したスロットの{@link LogContext}への参照は、スロットを解放する前に破棄する。
+     * </p>
+     * @param consumer 読み出した値を受け取る処理
+     * @return 読み出した件数
+     */
+    int drain(EventConsumer consumer) {
+        int count = 0;
+        while (true) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                return count;
+            }
+            long value = values[index];
+            LogContext context = contexts[index];
+            contexts[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+            count++;
+            consumer.accept(value, context);
+        }
+    }
+
+    /**
+     * 容量を取得する。
+     * @return 容量
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 読み出した値を受け取る処理。
+     */
+    @FunctionalInterface
+    interface EventConsumer {
+        /**
+         * 読み出した値を受け取る。
+         * @param value 値
+         * @param context 値と合わせて格納されていた{@link LogContext}（無い場合は{@code null}）
+         */
+        void accept(long value, LogContext context);
+    }
+}
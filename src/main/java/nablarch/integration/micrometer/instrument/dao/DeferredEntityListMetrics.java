@@ -0,0 +1,126 @@
+package nablarch.integration.micrometer.instrument.dao;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import nablarch.common.dao.DeferredEntityList;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 遅延ロードの検索結果をラップして、検索結果の読み込みにかかった時間と件数を計測する{@link DeferredEntityList}。
+ * <p>
+ * {@link #iterator()}を呼び出してから最初の1件を取得するまでの時間と、
+ * {@link #iterator()}を呼び出してから{@link #close()}を呼び出すまでの時間、取得した件数を、
+ * {@link #close()}が呼び出されたときに記録する。<br>
+ * {@link #iterator()}が呼び出されずに{@link #close()}された場合は何も記録しない。
+ * </p>
+ * <p>
+ * 委譲先の遅延ロードの検索結果と同じく、使用できるのは{@link #iterator()}と{@link #close()}のみである。<br>
+ * {@link DeferredEntityList}のサブクラスであるため、これまでどおり{@link DeferredEntityList}にキャストして使用できる。
+ * </p>
+ * <p>
+ * 検索結果の読み込みは全て委譲先で行うため、スーパークラスにはエンティティの型もリソースも渡さない（{@code null}を渡す）。<br>
+ * スーパークラスでこれらを参照するのは{@link #iterator()}と{@link #close()}のみであり、このクラスはどちらもオーバーライドして委譲先を使用する。
+ * それ以外のメソッドは、スーパークラスと同じく{@link UnsupportedOperationException}をスローする。
+ * </p>
+ * @param <T> エンティティの型
+ * @author Tanaka Tomoyuki
+ */
+class DeferredEntityListMetrics<T> extends DeferredEntityList<T> {
+    /** 委譲先の遅延ロードの検索結果。 */
+    private final DeferredEntityList<T> delegate;
+    /** 時間の計測に使用する{@link Clock}。 */
+    private final Clock clock;
+    /** 最初の1件を取得するまでの時間を記録する{@link Timer}。 */
+    private final Timer firstRowTimer;
+    /** 読み込み全体の時間を記録する{@link Timer}。 */
+    private final Timer iterationTimer;
+    /** 取得した件数を記録する{@link DistributionSummary}。 */
+    private final DistributionSummary rowCount;
+
+    /** {@link #iterator()}が呼び出された時刻（呼び出されていない場合は{@code -1}）。 */
+    private long iterationStartTime = -1;
+    /** 最初の1件を取得するまでの時間（取得していない場合は{@code -1}）。 */
+    private long firstRowTime = -1;
+    /** 取得した件数。 */
+    private long count;
+    /** 記録済みかどうか。 */
+    private boolean recorded;
+
+    /**
+     * コンストラクタ。
+     * @param delegate 委譲先の遅延ロードの検索結果
+     * @param clock 時間の計測に使用する{@link Clock}
+     * @param firstRowTimer 最初の1件を取得するまでの時間を記録する{@link Timer}
+     * @param iterationTimer 読み込み全体の時間を記録する{@link Timer}
+     * @param rowCount 取得した件数を記録する{@link DistributionSummary}
+     */
+    DeferredEntityListMetrics(DeferredEntityList<T> delegate, Clock clock, Timer firstRowTimer,
+                              Timer iterationTimer, DistributionSummary rowCount) {
+        super(null, null);
+        this.delegate = delegate;
+        this.clock = clock;
+        this.firstRowTimer = firstRowTimer;
+        this.iterationTimer = iterationTimer;
+        this.rowCount = rowCount;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (iterationStartTime < 0) {
+            iterationStartTime = clock.monotonicTime();
+        }
+        Iterator<T> iterator = delegate.iterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                T entity = iterator.next();
+                if (firstRowTime < 0) {
+                    firstRowTime = clock.monotonicTime() - iterationStartTime;
+                }
+                count++;
+                return entity;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        try {
+            delegate.close();
+        } finally {
+            record();
+        }
+    }
+
+    /**
+     * 計測結果を記録する。
+     */
+    private void record() {
+        if (recorded || iterationStartTime < 0) {
+            return;
+        }
+        recorded = true;
+
+        iterationTimer.record(clock.monotonicTime() - iterationStartTime, TimeUnit.NANOSECONDS);
+        if (0 <= firstRowTime) {
+            firstRowTimer.record(firstRowTime, TimeUnit.NANOSECONDS);
+        }
+        rowCount.record(count);
+    }
+
+    /**
+     * 委譲先の遅延ロードの検索結果を取得する。
+     * @return 委譲先の遅延ロードの検索結果
+     */
+    DeferredEntityList<T> getDelegate() {
+        return delegate;
+    }
+}
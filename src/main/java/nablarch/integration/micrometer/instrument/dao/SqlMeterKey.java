@@ -0,0 +1,92 @@
+package nablarch.integration.micrometer.instrument.dao;
+
+import java.util.Objects;
+
+/**
+ * {@link SqlTimeMetricsDaoContext}が記録するメトリクスをキャッシュするときのキー。
+ * <p>
+ * エンティティは名前ではなく{@link Class}オブジェクトの同一性で比較するため、
+ * キャッシュを検索するときにエンティティ名の文字列を取得したり比較したりする必要はない。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+final class SqlMeterKey {
+    /** メトリクス名。 */
+    private final String metricsName;
+    /** SQLID。 */
+    private final String sqlId;
+    /** エンティティの{@link Class}オブジェクト。 */
+    private final Class<?> entityClass;
+    /** 実行された{@link nablarch.common.dao.DaoContext DaoContext}のメソッド名。 */
+    private final String methodName;
+
+    /**
+     * コンストラクタ。
+     * @param metricsName メトリクス名
+     * @param sqlId SQLID
+     * @param entityClass エンティティの{@link Class}オブジェクト
+     * @param methodName 実行された{@link nablarch.common.dao.DaoContext DaoContext}のメソッド名
+     */
+    SqlMeterKey(String metricsName, String sqlId, Class<?> entityClass, String methodName) {
+        this.metricsName = metricsName;
+        this.sqlId = sqlId;
+        this.entityClass = entityClass;
+        this.methodName = methodName;
+    }
+
+    /**
+     * メトリクス名を取得する。
+     * @return メトリクス名
+     */
+    String getMetricsName() {
+        return metricsName;
+    }
+
+    /**
+     * SQLIDを取得する。
+     * @return SQLID
+     */
+    String getSqlId() {
+        return sqlId;
+    }
+
+    /**
+     * エンティティの{@link Class}オブジェクトを取得する。
+     * @return エンティティの{@link Class}オブジェクト
+     */
+    Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * 実行された{@link nablarch.common.dao.DaoContext DaoContext}のメソッド名を取得する。
+     * @return メソッド名
+     */
+    String getMethodName() {
+        return methodName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SqlMeterKey)) {
+            return false;
+        }
+        SqlMeterKey that = (SqlMeterKey) o;
+        return entityClass == that.entityClass
+                && metricsName.equals(that.metricsName)
+                && Objects.equals(sqlId, that.sqlId)
+                && methodName.equals(that.methodName);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = metricsName.hashCode();
+        result = 31 * result + Objects.hashCode(sqlId);
+        result = 31 * result + entityClass.hashCode();
+        result = 31 * result + methodName.hashCode();
+        return result;
+    }
+}
@@ -1,12 +1,20 @@
 package nablarch.integration.micrometer.instrument.dao;
 
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import nablarch.common.dao.DaoContext;
+import nablarch.common.dao.DeferredEntityList;
 import nablarch.common.dao.EntityList;
+import nablarch.integration.micrometer.instrument.MeterCache;
+import nablarch.integration.micrometer.instrument.TagValueLimiter;
 
 import jakarta.persistence.OptimisticLockException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
@@ -26,6 +34,36 @@ import java.util.function.Supplier;
  * 引数で渡されたエンティティまたはエンティティのリストが、{@code null}または空のリストの場合は、
  * 時間は計測されない（委譲先のメソッドの処理は実行される）。
  * </p>
+ * <p>
+ * {@link #setBatchSizeMetricsEnabled(boolean)}で{@code true}を設定した場合は、
+ * {@code batchInsert}, {@code batchUpdate}, {@code batchDelete}について以下のメトリクスも記録する（タグは上記と同じ）。
+ * <ul>
+ *   <li>{@code sql.batch.size}: 処理したエンティティの件数の分布({@link DistributionSummary})</li>
+ *   <li>{@code sql.batch.row.time}: 処理時間をエンティティの件数で割った、1件あたりの処理時間({@link Timer})</li>
+ * </ul>
+ * </p>
+ * <p>
+ * {@link #setResultSizeMetricsEnabled(boolean)}で{@code true}を設定した場合は、
+ * {@link EntityList}を返す検索メソッドで取得した件数と、{@code countBySqlFile}で取得した件数を
+ * {@code sql.result.size}という名前の{@link DistributionSummary}に記録する（タグは上記と同じ）。<br>
+ * 遅延ロードの場合は検索時点で件数が確定しないため、記録しない。<br>
+ * {@code sql.id}タグの値の種類は{@link TagValueLimiter}で制限し、上限を超えた場合は{@value TagValueLimiter#OTHER}になる。
+ * </p>
+ * <p>
+ * {@link #setDeferredMetricsEnabled(boolean)}で{@code true}を設定した場合は、
+ * 遅延ロードの検索結果を{@link DeferredEntityListMetrics}でラップし、検索結果を閉じたときに以下のメトリクスを記録する（タグは上記と同じ）。
+ * <ul>
+ *   <li>{@code sql.deferred.first.row.time}: 読み込みを開始してから最初の1件を取得するまでの時間({@link Timer})</li>
+ *   <li>{@code sql.deferred.iteration.time}: 読み込みを開始してから検索結果を閉じるまでの時間({@link Timer})</li>
+ *   <li>{@code sql.deferred.row.count}: 取得した件数({@link DistributionSummary})</li>
+ * </ul>
+ * {@link DeferredEntityListMetrics}は{@link DeferredEntityList}のサブクラスであるため、
+ * 検索結果はこれまでどおり{@link DeferredEntityList}にキャストして使用できる。<br>
+ * {@code sql.id}タグの値の種類は、{@code sql.result.size}と同じ{@link TagValueLimiter}で制限する。
+ * </p>
+ * <p>
+ * {@link SqlTimeMetricsDaoContextFactory}で生成した場合、登録済みの{@link Timer}はファクトリが保持するキャッシュを共有して再利用する。
+ * </p>
  * @author Tanaka Tomoyuki
  */
 public class SqlTimeMetricsDaoContext implements DaoContext {
@@ -41,15 +79,51 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
     static final String TAG_NAME_METHOD_NAME = "method";
     /** SQLIDが無い場合に設定されるタグの値。 */
     static final String TAG_VALUE_NO_SQL_ID = "None";
+    /** バッチ更新の件数のメトリクス名。 */
+    static final String BATCH_SIZE_METRICS_NAME = "sql.batch.size";
+    /** バッチ更新の件数のメトリクスの説明。 */
+    static final String BATCH_SIZE_METRICS_DESCRIPTION = "Number of entities processed by batch sql.";
+    /** バッチ更新の1件あたりの処理時間のメトリクス名。 */
+    static final String BATCH_ROW_TIME_METRICS_NAME = "sql.batch.row.time";
+    /** バッチ更新の1件あたりの処理時間のメトリクスの説明。 */
+    static final String BATCH_ROW_TIME_METRICS_DESCRIPTION = "Time of processing batch sql per entity.";
+    /** 検索結果の件数のメトリクス名。 */
+    static final String RESULT_SIZE_METRICS_NAME = "sql.result.size";
+    /** 検索結果の件数のメトリクスの説明。 */
+    static final String RESULT_SIZE_METRICS_DESCRIPTION = "Number of rows returned by sql.";
+    /** 遅延ロードで最初の1件を取得するまでの時間のメトリクス名。 */
+    static final String DEFERRED_FIRST_ROW_TIME_METRICS_NAME = "sql.deferred.first.row.time";
+    /** 遅延ロードで最初の1件を取得するまでの時間のメトリクスの説明。 */
+    static final String DEFERRED_FIRST_ROW_TIME_METRICS_DESCRIPTION = "Time to fetch the first row of deferred sql result.";
+    /** 遅延ロードの読み込み全体の時間のメトリクス名。 */
+    static final String DEFERRED_ITERATION_TIME_METRICS_NAME = "sql.deferred.iteration.time";
+    /** 遅延ロードの読み込み全体の時間のメトリクスの説明。 */
+    static final String DEFERRED_ITERATION_TIME_METRICS_DESCRIPTION = "Time of iterating deferred sql result.";
+    /** 遅延ロードで取得した件数のメトリクス名。 */
+    static final String DEFERRED_ROW_COUNT_METRICS_NAME = "sql.deferred.row.count";
+    /** 遅延ロードで取得した件数のメトリクスの説明。 */
+    static final String DEFERRED_ROW_COUNT_METRICS_DESCRIPTION = "Number of rows fetched from deferred sql result.";
 
     /** 移譲先の{@link DaoContext}。 */
     private final DaoContext delegate;
     /** 使用する{@link MeterRegistry}。 */
     private final MeterRegistry meterRegistry;
+    /** 登録済みの{@link Timer}のキャッシュ（キャッシュを使用しない場合は{@code null}）。 */
+    private final MeterCache<SqlMeterKey, Timer> timerCache;
+    /** 登録済みの{@link DistributionSummary}のキャッシュ（キャッシュを使用しない場合は{@code null}）。 */
+    private final MeterCache<SqlMeterKey, DistributionSummary> summaryCache;
     /** メトリクス名。 */
     private String metricsName = DEFAULT_METRICS_NAME;
     /** メトリクスの説明。 */
     private String metricsDescription = DEFAULT_METRICS_DESCRIPTION;
+    /** バッチ更新の件数と1件あたりの処理時間を記録するかどうか。 */
+    private boolean batchSizeMetricsEnabled;
+    /** 検索結果の件数を記録するかどうか。 */
+    private boolean resultSizeMetricsEnabled;
+    /** 遅延ロードの読み込み時間を計測するかどうか。 */
+    private boolean deferredMetricsEnabled;
+    /** 検索結果の件数のメトリクスに設定するSQLIDの種類を制限する{@link TagValueLimiter}。 */
+    private TagValueLimiter sqlIdTagLimiter = new TagValueLimiter();
 
     /**
      * 委譲先の {@link DaoContext}と{@link MeterRegistry}を指定するコンストラクタ。
@@ -57,8 +131,27 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
      * @param meterRegistry {@link MeterRegistry}
      */
     public SqlTimeMetricsDaoContext(DaoContext delegate, MeterRegistry meterRegistry) {
+        this(delegate, meterRegistry, null, null);
+    }
+
+    /**
+     * 委譲先の {@link DaoContext}と{@link MeterRegistry}、登録済みの{@link Meter}の種類ごとのキャッシュを指定するコンストラクタ。
+     * <p>
+     * {@link DaoContext}はトランザクションごとなど頻繁に生成されるため、
+     * キャッシュは{@link SqlTimeMetricsDaoContextFactory}で生成したものを共有する。
+     * </p>
+     * @param delegate 委譲先の{@link DaoContext}
+     * @param meterRegistry {@link MeterRegistry}
+     * @param timerCache 登録済みの{@link Timer}のキャッシュ（キャッシュを使用しない場合は{@code null}）
+     * @param summaryCache 登録済みの{@link DistributionSummary}のキャッシュ（キャッシュを使用しない場合は{@code null}）
+     */
+    SqlTimeMetricsDaoContext(DaoContext delegate, MeterRegistry meterRegistry,
+                             MeterCache<SqlMeterKey, Timer> timerCache,
+                             MeterCache<SqlMeterKey, DistributionSummary> summaryCache) {
         this.delegate = delegate;
         this.meterRegistry = meterRegistry;
+        this.timerCache = timerCache;
+        this.summaryCache = summaryCache;
     }
 
     @Override
@@ -75,19 +168,19 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
 
     @Override
     public <T> EntityList<T> findAll(Class<T> entityClass) {
-        return recordTime(TAG_VALUE_NO_SQL_ID, entityClass, "findAll",
+        return recordEntityList(TAG_VALUE_NO_SQL_ID, entityClass, "findAll",
                 () -> delegate.findAll(entityClass));
     }
 
     @Override
     public <T> EntityList<T> findAllBySqlFile(Class<T> entityClass, String sqlId, Object params) {
-        return recordTime(sqlId, entityClass, "findAllBySqlFile",
+        return recordEntityList(sqlId, entityClass, "findAllBySqlFile",
                 () -> delegate.findAllBySqlFile(entityClass, sqlId, params));
     }
 
     @Override
     public <T> EntityList<T> findAllBySqlFile(Class<T> entityClass, String sqlId) {
-        return recordTime(sqlId, entityClass, "findAllBySqlFile",
+        return recordEntityList(sqlId, entityClass, "findAllBySqlFile",
                 () -> delegate.findAllBySqlFile(entityClass, sqlId));
     }
 
@@ -105,8 +198,12 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
 
     @Override
     public <T> long countBySqlFile(Class<T> entityClass, String sqlId, Object params) {
-        return recordTime(sqlId, entityClass, "countBySqlFile",
+        long count = recordTime(sqlId, entityClass, "countBySqlFile",
                 () -> delegate.countBySqlFile(entityClass, sqlId, params));
+        if (resultSizeMetricsEnabled) {
+            recordResultSize(sqlId, entityClass, "countBySqlFile", count);
+        }
+        return count;
     }
 
     @Override
@@ -154,10 +251,34 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
             return;
         }
 
-        recordTime(TAG_VALUE_NO_SQL_ID, entities.get(0).getClass(), methodName, () -> {
+        Class<?> entityClass = entities.get(0).getClass();
+        if (!batchSizeMetricsEnabled) {
+            recordTime(TAG_VALUE_NO_SQL_ID, entityClass, methodName, () -> {
+                execution.run();
+                return null;
+            });
+            return;
+        }
+
+        Timer timer = obtainTimer(new SqlMeterKey(metricsName, TAG_VALUE_NO_SQL_ID, entityClass, methodName), this::registerTimer);
+        Clock clock = meterRegistry.config().clock();
+        long start = clock.monotonicTime();
+        try {
             execution.run();
-            return null;
-        });
+        } finally {
+            long elapsed = clock.monotonicTime() - start;
+            int size = entities.size();
+
+            timer.record(elapsed, TimeUnit.NANOSECONDS);
+            DistributionSummary batchSize = obtainSummary(
+                    new SqlMeterKey(BATCH_SIZE_METRICS_NAME, TAG_VALUE_NO_SQL_ID, entityClass, methodName),
+                    key -> registerSummary(key, BATCH_SIZE_METRICS_DESCRIPTION));
+            batchSize.record(size);
+            Timer rowTime = obtainTimer(
+                    new SqlMeterKey(BATCH_ROW_TIME_METRICS_NAME, TAG_VALUE_NO_SQL_ID, entityClass, methodName),
+                    key -> registerTimer(key, BATCH_ROW_TIME_METRICS_DESCRIPTION));
+            rowTime.record(elapsed / size, TimeUnit.NANOSECONDS);
+        }
     }
 
     /**
@@ -176,6 +297,73 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
         return recordTime(TAG_VALUE_NO_SQL_ID, entity.getClass(), methodName, execution);
     }
 
+    /**
+     * {@link EntityList}を返す検索メソッドの時間を計測する。
+     * <p>
+     * 設定に応じて、検索結果の件数を記録したり、遅延ロードの検索結果をラップしたりする。
+     * </p>
+     * @param sqlId SQLID
+     * @param entityClass エンティティの{@link Class}オブジェクト
+     * @param methodName 実行された{@link DaoContext}のメソッド名
+     * @param execution 計測対象の検索処理
+     * @param <T> エンティティの型
+     * @return 検索結果
+     */
+    private <T> EntityList<T> recordEntityList(String sqlId, Class<?> entityClass, String methodName,
+                                               Supplier<EntityList<T>> execution) {
+        EntityList<T> result = recordTime(sqlId, entityClass, methodName, execution);
+        if (result == null) {
+            return null;
+        }
+
+        if (result instanceof DeferredEntityList) {
+            return deferredMetricsEnabled
+                    ? wrapDeferred(sqlId, entityClass, methodName, (DeferredEntityList<T>) result) : result;
+        }
+        if (resultSizeMetricsEnabled) {
+            recordResultSize(sqlId, entityClass, methodName, result.size());
+        }
+        return result;
+    }
+
+    /**
+     * 遅延ロードの検索結果を、読み込み時間を計測する{@link DeferredEntityListMetrics}でラップする。
+     * @param sqlId SQLID
+     * @param entityClass エンティティの{@link Class}オブジェクト
+     * @param methodName 実行された{@link DaoContext}のメソッド名
+     * @param result 遅延ロードの検索結果
+     * @param <T> エンティティの型
+     * @return ラップした検索結果
+     */
+    private <T> DeferredEntityList<T> wrapDeferred(String sqlId, Class<?> entityClass, String methodName,
+                                                   DeferredEntityList<T> result) {
+        String sqlIdTagValue = sqlIdTagLimiter.limit(sqlId);
+        Timer firstRowTimer = obtainTimer(
+                new SqlMeterKey(DEFERRED_FIRST_ROW_TIME_METRICS_NAME, sqlIdTagValue, entityClass, methodName),
+                key -> registerTimer(key, DEFERRED_FIRST_ROW_TIME_METRICS_DESCRIPTION));
+        Timer iterationTimer = obtainTimer(
+                new SqlMeterKey(DEFERRED_ITERATION_TIME_METRICS_NAME, sqlIdTagValue, entityClass, methodName),
+                key -> registerTimer(key, DEFERRED_ITERATION_TIME_METRICS_DESCRIPTION));
+        DistributionSummary rowCount = obtainSummary(
+                new SqlMeterKey(DEFERRED_ROW_COUNT_METRICS_NAME, sqlIdTagValue, entityClass, methodName),
+                key -> registerSummary(key, DEFERRED_ROW_COUNT_METRICS_DESCRIPTION));
+        return new DeferredEntityListMetrics<>(result, meterRegistry.config().clock(), firstRowTimer, iterationTimer, rowCount);
+    }
+
+    /**
+     * 検索結果の件数を記録する。
+     * @param sqlId SQLID
+     * @param entityClass エンティティの{@link Class}オブジェクト
+     * @param methodName 実行された{@link DaoContext}のメソッド名
+     * @param size 検索結果の件数
+     */
+    private void recordResultSize(String sqlId, Class<?> entityClass, String methodName, long size) {
+        DistributionSummary resultSize = obtainSummary(
+                new SqlMeterKey(RESULT_SIZE_METRICS_NAME, sqlIdTagLimiter.limit(sqlId), entityClass, methodName),
+                key -> registerSummary(key, RESULT_SIZE_METRICS_DESCRIPTION));
+        resultSize.record(size);
+    }
+
     /**
      * 指定された処理の時間を計測する。
      * @param sqlId SQIID
@@ -186,15 +374,75 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
      * @return {@code execution} が返した値
      */
     private <T> T recordTime(String sqlId, Class<?> entityClass, String methodName, Supplier<T> execution) {
-        return Timer.builder(metricsName)
-                    .description(metricsDescription)
-                    .tag(TAG_NAME_SQL_ID, sqlId)
-                    .tag(TAG_NAME_ENTITY_NAME, entityClass.getName())
-                    .tag(TAG_NAME_METHOD_NAME, methodName)
-                    .register(meterRegistry)
+        return obtainTimer(new SqlMeterKey(metricsName, sqlId, entityClass, methodName), this::registerTimer)
                     .record(execution);
     }
 
+    /**
+     * キーに対応する{@link Timer}を取得する。
+     * <p>
+     * キャッシュを使用する場合は、キャッシュに存在しないときだけ{@code factory}で{@link MeterRegistry}に登録する。
+     * </p>
+     * @param key キー
+     * @param factory {@link Timer}を{@link MeterRegistry}に登録するファクトリ
+     * @return キーに対応する{@link Timer}
+     */
+    private Timer obtainTimer(SqlMeterKey key, Function<SqlMeterKey, Timer> factory) {
+        return timerCache == null ? factory.apply(key) : timerCache.get(key, factory);
+    }
+
+    /**
+     * キーに対応する{@link DistributionSummary}を取得する。
+     * <p>
+     * キャッシュを使用する場合は、キャッシュに存在しないときだけ{@code factory}で{@link MeterRegistry}に登録する。
+     * </p>
+     * @param key キー
+     * @param factory {@link DistributionSummary}を{@link MeterRegistry}に登録するファクトリ
+     * @return キーに対応する{@link DistributionSummary}
+     */
+    private DistributionSummary obtainSummary(SqlMeterKey key, Function<SqlMeterKey, DistributionSummary> factory) {
+        return summaryCache == null ? factory.apply(key) : summaryCache.get(key, factory);
+    }
+
+    /**
+     * {@link Timer}を{@link MeterRegistry}に登録する。
+     * @param key 登録する{@link Timer}のキー
+     * @return 登録した{@link Timer}
+     */
+    private Timer registerTimer(SqlMeterKey key) {
+        return registerTimer(key, metricsDescription);
+    }
+
+    /**
+     * 説明を指定して{@link Timer}を{@link MeterRegistry}に登録する。
+     * @param key 登録する{@link Timer}のキー
+     * @param description メトリクスの説明
+     * @return 登録した{@link Timer}
+     */
+    private Timer registerTimer(SqlMeterKey key, String description) {
+        return Timer.builder(key.getMetricsName())
+                    .description(description)
+                    .tag(TAG_NAME_SQL_ID, key.getSqlId())
+                    .tag(TAG_NAME_ENTITY_NAME, key.getEntityClass().getName())
+                    .tag(TAG_NAME_METHOD_NAME, key.getMethodName())
+                    .register(meterRegistry);
+    }
+
+    /**
+     * {@link DistributionSummary}を{@link MeterRegistry}に登録する。
+     * @param key 登録する{@link DistributionSummary}のキー
+     * @param description メトリクスの説明
+     * @return 登録した{@link DistributionSummary}
+     */
+    private DistributionSummary registerSummary(SqlMeterKey key, String description) {
+        return DistributionSummary.builder(key.getMetricsName())
+                    .description(description)
+                    .tag(TAG_NAME_SQL_ID, key.getSqlId())
+                    .tag(TAG_NAME_ENTITY_NAME, key.getEntityClass().getName())
+                    .tag(TAG_NAME_METHOD_NAME, key.getMethodName())
+                    .register(meterRegistry);
+    }
+
     @Override
     public DaoContext page(long page) {
         delegate.page(page);
@@ -245,6 +493,51 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
         return metricsDescription;
     }
 
+    /**
+     * バッチ更新の件数と1件あたりの処理時間を記録するかどうかを設定する。
+     * <p>
+     * デフォルトは{@code false}。
+     * </p>
+     * @param batchSizeMetricsEnabled 記録する場合は{@code true}
+     */
+    public void setBatchSizeMetricsEnabled(boolean batchSizeMetricsEnabled) {
+        this.batchSizeMetricsEnabled = batchSizeMetricsEnabled;
+    }
+
+    /**
+     * 検索結果の件数を記録するかどうかを設定する。
+     * <p>
+     * デフォルトは{@code false}。
+     * </p>
+     * @param resultSizeMetricsEnabled 記録する場合は{@code true}
+     */
+    public void setResultSizeMetricsEnabled(boolean resultSizeMetricsEnabled) {
+        this.resultSizeMetricsEnabled = resultSizeMetricsEnabled;
+    }
+
+    /**
+     * 遅延ロードの検索結果の読み込み時間を計測するかどうかを設定する。
+     * <p>
+     * デフォルトは{@code false}。<br>
+     * {@code true}を設定した場合も、遅延ロードの検索結果は{@link DeferredEntityList}にキャストして使用できる。
+     * </p>
+     * @param deferredMetricsEnabled 計測する場合は{@code true}
+     */
+    public void setDeferredMetricsEnabled(boolean deferredMetricsEnabled) {
+        this.deferredMetricsEnabled = deferredMetricsEnabled;
+    }
+
+    /**
+     * 検索結果の件数と遅延ロードのメトリクスに設定するSQLIDの種類を制限する{@link TagValueLimiter}を設定する。
+     * <p>
+     * 未設定の場合は、このインスタンス専用の{@link TagValueLimiter}が使用される。
+     * </p>
+     * @param sqlIdTagLimiter SQLIDの種類を制限する{@link TagValueLimiter}
+     */
+    public void setSqlIdTagLimiter(TagValueLimiter sqlIdTagLimiter) {
+        this.sqlIdTagLimiter = sqlIdTagLimiter;
+    }
+
     /**
      * 委譲先の{@link DaoContext}を取得する。
      * @return 委譲先の {@link DaoContext}
@@ -260,4 +553,20 @@ public class SqlTimeMetricsDaoContext implements DaoContext {
     public MeterRegistry getMeterRegistry() {
         return meterRegistry;
     }
+
+    /**
+     * 登録済みの{@link Timer}のキャッシュを取得する。
+     * @return 登録済みの{@link Timer}のキャッシュ（キャッシュを使用しない場合は{@code null}）
+     */
+    MeterCache<SqlMeterKey, Timer> getTimerCache() {
+        return timerCache;
+    }
+
+    /**
+     * 登録済みの{@link DistributionSummary}のキャッシュを取得する。
+     * @return 登録済みの{@link DistributionSummary}のキャッシュ（キャッシュを使用しない場合は{@code null}）
+     */
+    MeterCache<SqlMeterKey, DistributionSummary> getSummaryCache() {
+        return summaryCache;
+    }
 }
@@ -1,12 +1,25 @@
 package nablarch.integration.micrometer.instrument.dao;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import nablarch.common.dao.DaoContext;
 import nablarch.common.dao.DaoContextFactory;
+import nablarch.integration.micrometer.instrument.MeterCache;
+import nablarch.integration.micrometer.instrument.TagValueLimiter;
 
 /**
  * 委譲対象({@code delegate})の{@link DaoContextFactory}が生成する{@link DaoContext}をラップした
  * {@link SqlTimeMetricsDaoContext}を生成するファクトリクラス。
+ * <p>
+ * 生成した{@link SqlTimeMetricsDaoContext}は、このファクトリが保持する{@link Meter}の種類ごとのキャッシュを共有する。<br>
+ * キャッシュは最初に{@link #create()}が呼ばれたときに一度だけ生成する。
+ * キャッシュする件数の上限は{@link #setMaxCacheSize(int)}で変更できる。
+ * </p>
+ * <p>
+ * 検索結果の件数と遅延ロードのメトリクスに設定するSQLIDの種類の上限も、生成した{@link SqlTimeMetricsDaoContext}全体で共有する。
+ * </p>
  * @author Tanaka Tomoyuki
  */
 public class SqlTimeMetricsDaoContextFactory extends DaoContextFactory {
@@ -18,6 +31,18 @@ public class SqlTimeMetricsDaoContextFactory extends DaoContextFactory {
     private String metricsName;
     /** メトリクスの説明。 */
     private String metricsDescription;
+    /** バッチ更新の件数と1件あたりの処理時間を記録するかどうか。 */
+    private boolean batchSizeMetricsEnabled;
+    /** 検索結果の件数を記録するかどうか。 */
+    private boolean resultSizeMetricsEnabled;
+    /** 遅延ロードの読み込み時間を計測するかどうか。 */
+    private boolean deferredMetricsEnabled;
+    /** 生成した{@link SqlTimeMetricsDaoContext}で共有する、SQLIDの種類を制限する{@link TagValueLimiter}。 */
+    private final TagValueLimiter sqlIdTagLimiter = new TagValueLimiter();
+    /** キャッシュする{@link Meter}の件数の上限。 */
+    private int maxCacheSize = MeterCache.DEFAULT_MAX_SIZE;
+    /** 生成した{@link SqlTimeMetricsDaoContext}で共有する{@link Meter}のキャッシュ（未生成の場合は{@code null}）。 */
+    private volatile MeterCaches meterCaches;
 
     @Override
     public DaoContext create() {
@@ -28,7 +53,9 @@ public class SqlTimeMetricsDaoContextFactory extends DaoContextFactory {
             throw new IllegalStateException("meterRegistry is null.");
         }
 
-        SqlTimeMetricsDaoContext daoContext = new SqlTimeMetricsDaoContext(delegate.create(), meterRegistry);
+        MeterCaches caches = obtainMeterCaches();
+        SqlTimeMetricsDaoContext daoContext = new SqlTimeMetricsDaoContext(
+                delegate.create(), meterRegistry, caches.timerCache, caches.summaryCache);
 
         if (metricsName != null) {
             daoContext.setMetricsName(metricsName);
@@ -36,6 +63,10 @@ public class SqlTimeMetricsDaoContextFactory extends DaoContextFactory {
         if (metricsDescription != null) {
             daoContext.setMetricsDescription(metricsDescription);
         }
+        daoContext.setBatchSizeMetricsEnabled(batchSizeMetricsEnabled);
+        daoContext.setResultSizeMetricsEnabled(resultSizeMetricsEnabled);
+        daoContext.setDeferredMetricsEnabled(deferredMetricsEnabled);
+        daoContext.setSqlIdTagLimiter(sqlIdTagLimiter);
 
         return daoContext;
     }
@@ -54,6 +85,81 @@ public class SqlTimeMetricsDaoContextFactory extends DaoContextFactory {
      */
     public void setMeterRegistry(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
+        this.meterCaches = null;
+    }
+
+    /**
+     * {@link SqlTimeMetricsDaoContext}で、バッチ更新の件数と1件あたりの処理時間を記録するかどうかを指定する。
+     * @param batchSizeMetricsEnabled 記録する場合は{@code true}
+     * @see SqlTimeMetricsDaoContext#setBatchSizeMetricsEnabled(boolean)
+     */
+    public void setBatchSizeMetricsEnabled(boolean batchSizeMetricsEnabled) {
+        this.batchSizeMetricsEnabled = batchSizeMetricsEnabled;
+    }
+
+    /**
+     * {@link SqlTimeMetricsDaoContext}で、検索結果の件数を記録するかどうかを指定する。
+     * @param resultSizeMetricsEnabled 記録する場合は{@code true}
+     * @see SqlTimeMetricsDaoContext#setResultSizeMetricsEnabled(boolean)
+     */
+    public void setResultSizeMetricsEnabled(boolean resultSizeMetricsEnabled) {
+        this.resultSizeMetricsEnabled = resultSizeMetricsEnabled;
+    }
+
+    /**
+     * {@link SqlTimeMetricsDaoContext}で、遅延ロードの検索結果の読み込み時間を計測するかどうかを指定する。
+     * @param deferredMetricsEnabled 計測する場合は{@code true}
+     * @see SqlTimeMetricsDaoContext#setDeferredMetricsEnabled(boolean)
+     */
+    public void setDeferredMetricsEnabled(boolean deferredMetricsEnabled) {
+        this.deferredMetricsEnabled = deferredMetricsEnabled;
+    }
+
+    /**
+     * 検索結果の件数と遅延ロードのメトリクスに設定するSQLIDの種類の上限を設定する。
+     * <p>
+     * 未設定の場合は{@link TagValueLimiter#DEFAULT_MAX_DISTINCT_VALUES}が使用される。
+     * </p>
+     * @param maxResultSizeSqlIds SQLIDの種類の上限
+     */
+    public void setMaxResultSizeSqlIds(int maxResultSizeSqlIds) {
+        sqlIdTagLimiter.setMaxDistinctValues(maxResultSizeSqlIds);
+    }
+
+    /**
+     * 生成した{@link SqlTimeMetricsDaoContext}で共有する{@link Meter}のキャッシュの件数の上限を設定する。
+     * <p>
+     * 未設定の場合は{@link MeterCache#DEFAULT_MAX_SIZE}が使用される。
+     * </p>
+     * @param maxCacheSize キャッシュする{@link Meter}の件数の上限
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        this.meterCaches = null;
+    }
+
+    /**
+     * {@link Meter}のキャッシュを取得する。
+     * <p>
+     * {@link MeterCache}は生成時に{@link MeterRegistry}へリスナーを登録するため、
+     * 設定が変わらない限り、一度だけ生成したものを使い続ける。
+     * </p>
+     * @return {@link Meter}のキャッシュ
+     */
+    private MeterCaches obtainMeterCaches() {
+        MeterCaches caches = meterCaches;
+        if (caches == null) {
+            synchronized (this) {
+                caches = meterCaches;
+                if (caches == null) {
+                    caches = new MeterCaches(
+                            new MeterCache<>(meterRegistry, maxCacheSize),
+                            new MeterCache<>(meterRegistry, maxCacheSize));
+                    meterCaches = caches;
+                }
+            }
+        }
+        return caches;
     }
 
     /**
@@ -71,4 +177,25 @@ public class SqlTimeMetricsDaoContextFactory extends DaoContextFactory {
     public void setMetricsDescription(String metricsDescription) {
         this.metricsDescription = metricsDescription;
     }
+
+    /**
+     * {@link Meter}の種類ごとのキャッシュをまとめて保持するクラス。
+     */
+    private static final class MeterCaches {
+        /** {@link Timer}のキャッシュ。 */
+        private final MeterCache<SqlMeterKey, Timer> timerCache;
+        /** {@link DistributionSummary}のキャッシュ。 */
+        private final MeterCache<SqlMeterKey, DistributionSummary> summaryCache;
+
+        /**
+         * コンストラクタ。
+         * @param timerCache {@link Timer}のキャッシュ
+         * @param summaryCache {@link DistributionSummary}のキャッシュ
+         */
+        private MeterCaches(MeterCache<SqlMeterKey, Timer> timerCache,
+                            MeterCache<SqlMeterKey, DistributionSummary> summaryCache) {
+            this.timerCache = timerCache;
+            this.summaryCache = summaryCache;
+        }
+    }
 }
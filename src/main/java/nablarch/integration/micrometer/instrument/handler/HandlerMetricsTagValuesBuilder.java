@@ -0,0 +1,46 @@
+package nablarch.integration.micrometer.instrument.handler;
+
+import nablarch.core.util.annotation.Published;
+import nablarch.fw.ExecutionContext;
+
+import java.util.List;
+
+/**
+ * タグの値を呼び出し元が用意した配列に書き込む形でメタ情報を生成するビルダー。
+ * <p>
+ * {@link HandlerMetricsMetaDataBuilder#buildTagList}はリクエストのたびに{@link io.micrometer.core.instrument.Tag Tag}と
+ * リストを生成する必要がある。<br>
+ * このインタフェースを実装したビルダーを{@link TimerMetricsHandler}に設定した場合、
+ * {@link TimerMetricsHandler}はスレッドごとに再利用する配列を{@link #buildTagValues}に渡してタグの値だけを受け取り、
+ * 既に出現したことのあるタグの値の組み合わせであれば、{@code Tag}を生成せずにキャッシュ済みの{@link io.micrometer.core.instrument.Timer Timer}を使用する。
+ * </p>
+ * @param <TData> 処理対象データ型
+ * @param <TResult> 処理結果データ型
+ * @author Tanaka Tomoyuki
+ */
+@Published(tag = "architect")
+public interface HandlerMetricsTagValuesBuilder<TData, TResult> extends HandlerMetricsMetaDataBuilder<TData, TResult> {
+
+    /**
+     * メトリクスに設定するタグのキーのリストを取得する。
+     * <p>
+     * このメソッドは、同じインスタンスに対しては常に同じ内容のリストを返すこと。
+     * </p>
+     * @return タグのキーのリスト
+     */
+    List<String> getTagKeys();
+
+    /**
+     * メトリクスに設定するタグの値を、{@link #getTagKeys()}のキーと同じ順序で{@code tagValues}に書き込む。
+     * <p>
+     * {@code tagValues}は{@link #getTagKeys()}と同じ長さの配列で、呼び出し元で再利用されるため、
+     * 実装クラスは全ての要素に値を書き込むこと。
+     * </p>
+     * @param param ハンドラに渡された処理対象データ
+     * @param executionContext 実行時コンテキスト
+     * @param result ハンドラが返した処理結果データ（ハンドラが例外をスローした場合は {@code null}）
+     * @param thrownThrowable ハンドラがスローした例外（例外がスローされていない場合は {@code null}）
+     * @param tagValues タグの値を書き込む配列
+     */
+    void buildTagValues(TData param, ExecutionContext executionContext, TResult result, Throwable thrownThrowable, String[] tagValues);
+}
@@ -0,0 +1,84 @@
+package nablarch.integration.micrometer.instrument.handler;
+
+import java.util.Arrays;
+
+/**
+ * タグの値の並びを{@link io.micrometer.core.instrument.Timer Timer}のキャッシュのキーとして扱うためのクラス。
+ * <p>
+ * 検索時はスレッドごとに保持したインスタンスの配列に値を書き込んで再利用し、
+ * キャッシュに格納するときだけ{@link #copy()}で複製を作成する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+final class TagValuesKey {
+    /** タグの値。 */
+    private final String[] values;
+    /** ハッシュコード。 */
+    private int hash;
+
+    /**
+     * 指定した数のタグの値を保持するインスタンスを生成する。
+     * @param size タグの数
+     */
+    TagValuesKey(int size) {
+        this(new String[size], 0);
+    }
+
+    /**
+     * タグの値とハッシュコードを指定するコンストラクタ。
+     * @param values タグの値
+     * @param hash ハッシュコード
+     */
+    private TagValuesKey(String[] values, int hash) {
+        this.values = values;
+        this.hash = hash;
+    }
+
+    /**
+     * タグの値を書き込む配列を取得する。
+     * @return タグの値を書き込む配列
+     */
+    String[] values() {
+        return values;
+    }
+
+    /**
+     * 保持しているタグの数を取得する。
+     * @return タグの数
+     */
+    int size() {
+        return values.length;
+    }
+
+    /**
+     * 配列に書き込まれた値でハッシュコードを計算しなおす。
+     */
+    void rehash() {
+        hash = Arrays.hashCode(values);
+    }
+
+    /**
+     * キャッシュに格納するための複製を作成する。
+     * @return 複製したインスタンス
+     */
+    TagValuesKey copy() {
+        return new TagValuesKey(values.clone(), hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TagValuesKey)) {
+            return false;
+        }
+        TagValuesKey that = (TagValuesKey) o;
+        return hash == that.hash && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
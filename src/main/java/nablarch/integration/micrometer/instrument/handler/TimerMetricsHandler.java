@@ -5,12 +5,24 @@ import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
 import nablarch.fw.ExecutionContext;
 import nablarch.fw.Handler;
+import nablarch.integration.micrometer.instrument.MeterCache;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * ハンドラキューに追加することで、後続処理の実行時間をメトリクスとして収集するハンドラクラス。
+ * <p>
+ * 一度登録した{@link Timer}は、{@link HandlerMetricsMetaDataBuilder#buildTagList}が返したタグのリストをキーにしてキャッシュし、
+ * 同じタグの組み合わせのリクエストではキャッシュした{@link Timer}を再利用する。<br>
+ * キャッシュする件数の上限は{@link #setMaxCacheSize(int)}で変更できる。
+ * </p>
+ * <p>
+ * {@link HandlerMetricsTagValuesBuilder}を実装したビルダーが設定された場合は、
+ * スレッドごとに再利用する配列にタグの値を書き込ませてキャッシュを検索するため、
+ * 既に出現したタグの組み合わせであれば{@link Tag}やリストを生成せずに計測できる。
+ * </p>
  * @param <TData> 処理対象データ型
  * @param <TResult> 処理結果データ型
  * @author Tanaka Tomoyuki
@@ -20,6 +32,18 @@ public class TimerMetricsHandler<TData, TResult> implements Handler<TData, TResu
     private MeterRegistry meterRegistry;
     /** {@link HandlerMetricsMetaDataBuilder}。 */
     private HandlerMetricsMetaDataBuilder<TData, TResult> handlerMetricsMetaDataBuilder;
+    /** キャッシュする{@link Timer}の件数の上限。 */
+    private int maxCacheSize = MeterCache.DEFAULT_MAX_SIZE;
+    /**
+     * タグをキーにした{@link Timer}のキャッシュ。
+     * <p>
+     * キーは、タグのリスト({@code List<Tag>})またはタグの値の並び({@link TagValuesKey})になる。<br>
+     * 設定が終わった後の最初の計測時に一度だけ生成する。
+     * </p>
+     */
+    private volatile MeterCache<Object, Timer> timerCache;
+    /** {@link Timer}のキャッシュを検索するためにスレッドごとに再利用するキー。 */
+    private final ThreadLocal<TagValuesKey> tagValuesKeyHolder = new ThreadLocal<>();
 
     /** 収集対象のパーセンタイル。 */
     private double[] percentiles;
@@ -55,19 +79,110 @@ public class TimerMetricsHandler<TData, TResult> implements Handler<TData, TResu
             thrownThrowable = throwable;
             throw throwable;
         } finally {
-            List<Tag> tagList = handlerMetricsMetaDataBuilder.buildTagList(param, executionContext, result, thrownThrowable);
+            sample.stop(obtainTimer(param, executionContext, result, thrownThrowable));
+        }
+    }
 
-            Timer.Builder builder = Timer.builder(handlerMetricsMetaDataBuilder.getMetricsName());
+    /**
+     * 計測結果を記録する{@link Timer}を取得する。
+     * @param param ハンドラに渡された処理対象データ
+     * @param executionContext 実行時コンテキスト
+     * @param result 後続のハンドラが返した処理結果データ
+     * @param thrownThrowable 後続のハンドラがスローした例外
+     * @return {@link Timer}
+     */
+    private Timer obtainTimer(TData param, ExecutionContext executionContext, TResult result, Throwable thrownThrowable) {
+        if (handlerMetricsMetaDataBuilder instanceof HandlerMetricsTagValuesBuilder) {
+            return obtainTimer((HandlerMetricsTagValuesBuilder<TData, TResult>) handlerMetricsMetaDataBuilder,
+                    param, executionContext, result, thrownThrowable);
+        }
 
-            setupPercentileOptions(builder);
+        List<Tag> tagList = handlerMetricsMetaDataBuilder.buildTagList(param, executionContext, result, thrownThrowable);
 
-            Timer timer = builder
-                    .description(handlerMetricsMetaDataBuilder.getMetricsDescription())
-                    .tags(tagList)
-                    .register(meterRegistry);
+        return obtainTimerCache().get(tagList, key -> registerTimer(tagList));
+    }
 
-            sample.stop(timer);
+    /**
+     * {@link HandlerMetricsTagValuesBuilder}で構築したタグの値をもとに、計測結果を記録する{@link Timer}を取得する。
+     * @param tagValuesBuilder {@link HandlerMetricsTagValuesBuilder}
+     * @param param ハンドラに渡された処理対象データ
+     * @param executionContext 実行時コンテキスト
+     * @param result 後続のハンドラが返した処理結果データ
+     * @param thrownThrowable 後続のハンドラがスローした例外
+     * @return {@link Timer}
+     */
+    private Timer obtainTimer(HandlerMetricsTagValuesBuilder<TData, TResult> tagValuesBuilder,
+                              TData param, ExecutionContext executionContext, TResult result, Throwable thrownThrowable) {
+        List<String> tagKeys = tagValuesBuilder.getTagKeys();
+
+        TagValuesKey probe = tagValuesKeyHolder.get();
+        if (probe == null || probe.size() != tagKeys.size()) {
+            probe = new TagValuesKey(tagKeys.size());
+            tagValuesKeyHolder.set(probe);
+        }
+
+        tagValuesBuilder.buildTagValues(param, executionContext, result, thrownThrowable, probe.values());
+        probe.rehash();
+
+        MeterCache<Object, Timer> cache = obtainTimerCache();
+        Timer timer = cache.find(probe);
+        if (timer != null) {
+            return timer;
         }
+
+        TagValuesKey tagValuesKey = probe.copy();
+        return cache.put(tagValuesKey, registerTimer(toTagList(tagKeys, tagValuesKey.values())));
+    }
+
+    /**
+     * {@link Timer}のキャッシュを取得する。
+     * <p>
+     * まだ生成していない場合は、その時点の設定で生成する。
+     * </p>
+     * @return {@link Timer}のキャッシュ
+     */
+    private MeterCache<Object, Timer> obtainTimerCache() {
+        MeterCache<Object, Timer> cache = timerCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = timerCache;
+                if (cache == null) {
+                    cache = new MeterCache<>(meterRegistry, maxCacheSize);
+                    timerCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * タグのキーと値の並びから、タグのリストを生成する。
+     * @param tagKeys タグのキー
+     * @param tagValues タグの値
+     * @return タグのリスト
+     */
+    private static List<Tag> toTagList(List<String> tagKeys, String[] tagValues) {
+        List<Tag> tagList = new ArrayList<>(tagValues.length);
+        for (int i = 0; i < tagValues.length; i++) {
+            tagList.add(Tag.of(tagKeys.get(i), tagValues[i]));
+        }
+        return tagList;
+    }
+
+    /**
+     * {@link Timer}を{@link MeterRegistry}に登録する。
+     * @param tagList {@link Timer}に設定するタグのリスト
+     * @return 登録した{@link Timer}
+     */
+    private Timer registerTimer(List<Tag> tagList) {
+        Timer.Builder builder = Timer.builder(handlerMetricsMetaDataBuilder.getMetricsName());
+
+        setupPercentileOptions(builder);
+
+        return builder
+                .description(handlerMetricsMetaDataBuilder.getMetricsDescription())
+                .tags(tagList)
+                .register(meterRegistry);
     }
 
     /**
@@ -97,6 +212,20 @@ public class TimerMetricsHandler<TData, TResult> implements Handler<TData, TResu
      */
     public void setMeterRegistry(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
+        timerCache = null;
+    }
+
+    /**
+     * キャッシュする{@link Timer}の件数の上限を設定する。
+     * <p>
+     * 上限に達した後に初めて出現したタグの組み合わせについては、キャッシュせずに毎回{@link MeterRegistry}から取得する。<br>
+     * 未設定の場合は{@link MeterCache#DEFAULT_MAX_SIZE}が使用される。
+     * </p>
+     * @param maxCacheSize キャッシュする{@link Timer}の件数の上限
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        timerCache = null;
     }
 
     /**
@@ -5,12 +5,15 @@ import nablarch.fw.ExecutionContext;
 import nablarch.fw.handler.MethodBinding;
 import nablarch.fw.web.HttpRequest;
 import nablarch.fw.web.servlet.ServletExecutionContext;
-import nablarch.integration.micrometer.instrument.handler.HandlerMetricsMetaDataBuilder;
+import nablarch.integration.micrometer.instrument.ExceptionTagResolver;
+import nablarch.integration.micrometer.instrument.handler.HandlerMetricsTagValuesBuilder;
 
 import jakarta.servlet.http.HttpServletResponse;
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * HTTPリクエストの処理時間のメトリクスに設定するメタ情報を構築するビルダー。
@@ -37,7 +40,16 @@ import java.util.List;
  *       リクエストを処理したメソッドを表す文字列。<br>
  *       この文字列は、メソッド名の後ろに引数の型の正規名({@link Class#getCanonicalName()})をアンダースコア({@code _})で
  *       つなげたものになる（例:{@code fooMethod_int_java.lang.String}）。<br>
- *       メソッドの情報を取得できない場合は {@code UNKNOWN}。
+ *       メソッドの情報を取得できない場合は {@code UNKNOWN}。<br>
+ *       {@link #setMethodTagEnabled(boolean)}で{@code false}を設定した場合は、このタグは設定されない。
+ *     </td>
+ *   </tr>
+ *   <tr>
+ *     <td>uri</td>
+ *     <td>
+ *       {@link #setUriPatterns(List)}で設定したURIパターンのうち、リクエストパスに最初に一致したもの（例:{@code /users/{id}}）。<br>
+ *       いずれにも一致しない場合は {@code UNKNOWN}。<br>
+ *       URIパターンを設定した場合だけ、このタグが設定される。
  *     </td>
  *   </tr>
  *   <tr>
@@ -58,13 +70,17 @@ import java.util.List;
  *   </tr>
  *   <tr>
  *     <td>exception</td>
- *     <td>例外がスローされた場合は、そのクラスの単純名（スローされていない場合は {@code "None"}）</td>
+ *     <td>
+ *       例外がスローされた場合は、そのクラスの単純名（スローされていない場合は {@code "None"}）。<br>
+ *       ただし、タグの値として使用する例外クラスの種類が上限（デフォルトは{@value ExceptionTagResolver#DEFAULT_MAX_DISTINCT_VALUES}）に達した後に
+ *       初めてスローされた例外クラスや、許可リストを設定した場合に許可リストに含まれない例外クラスは {@code OTHER}。
+ *     </td>
  *   </tr>
  * </table>
  * </p>
  * @author Tanaka Tomoyuki
  */
-public class HttpRequestTimeMetricsMetaDataBuilder implements HandlerMetricsMetaDataBuilder<HttpRequest, Object> {
+public class HttpRequestTimeMetricsMetaDataBuilder implements HandlerMetricsTagValuesBuilder<HttpRequest, Object> {
     /** デフォルトのメトリクス名。 */
     static final String DEFAULT_METRICS_NAME = "http.server.requests";
     /** デフォルトのメトリクスの説明。 */
@@ -74,12 +90,71 @@ public class HttpRequestTimeMetricsMetaDataBuilder implements HandlerMetricsMeta
     private String metricsName = DEFAULT_METRICS_NAME;
     /** メトリクスの説明。 */
     private String metricsDescription = DEFAULT_METRICS_DESCRIPTION;
+    /**
+     * {@code method} タグの値のキャッシュ。
+     * <p>
+     * アクションのメソッドはアプリケーションの起動後に増えることはないため、件数の上限は設けていない。
+     * </p>
+     */
+    private final ConcurrentMap<Method, String> methodTagCache = new ConcurrentHashMap<>();
+    /** {@code exception} タグの値を解決する{@link ExceptionTagResolver}。 */
+    private final ExceptionTagResolver exceptionTagResolver = new ExceptionTagResolver();
+    /** {@code method} タグを設定するかどうか。 */
+    private boolean methodTagEnabled = true;
+    /** {@code uri} タグの値を解決する{@link UriPatternResolver}（{@code uri} タグを設定しない場合は{@code null}）。 */
+    private UriPatternResolver uriPatternResolver;
+    /**
+     * タグのキーのリスト。
+     * <p>
+     * 最初に参照されたときに、その時点の設定で一度だけ構築する（構築した後は、タグの構成を変更する設定はできない）。
+     * </p>
+     */
+    private volatile List<String> tagKeys;
 
     @Override
     public List<Tag> buildTagList(HttpRequest request, ExecutionContext context, Object result, Throwable thrownThrowable) {
+        List<String> tagKeys = getTagKeys();
+        String[] tagValues = new String[tagKeys.size()];
+        buildTagValues(request, context, result, thrownThrowable, tagValues);
+        int status = ((ServletExecutionContext) context).getServletResponse().getStatus();
+
+        List<Tag> tagList = new ArrayList<>(tagValues.length);
+        for (int i = 0; i < tagValues.length; i++) {
+            String tagKey = tagKeys.get(i);
+            if (HttpStatusTags.STATUS_TAG_KEY.equals(tagKey)) {
+                tagList.add(HttpStatusTags.status(status));
+            } else if (HttpStatusTags.OUTCOME_TAG_KEY.equals(tagKey)) {
+                tagList.add(HttpStatusTags.outcome(status));
+            } else {
+                tagList.add(Tag.of(tagKey, tagValues[i]));
+            }
+        }
+        return tagList;
+    }
+
+    @Override
+    public List<String> getTagKeys() {
+        List<String> keys = tagKeys;
+        if (keys == null) {
+            synchronized (this) {
+                keys = tagKeys;
+                if (keys == null) {
+                    keys = buildTagKeys();
+                    tagKeys = keys;
+                }
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public void buildTagValues(HttpRequest request, ExecutionContext context, Object result, Throwable thrownThrowable, String[] tagValues) {
         Class<?> clazz = context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_CLASS);
         Method method = context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_METHOD);
         HttpServletResponse servletResponse = ((ServletExecutionContext) context).getServletResponse();
+        int status = servletResponse.getStatus();
+        // タグの値を書き込む前に、タグの構成を確定させる
+        getTagKeys();
 
         /*
          * タグ仕様の背景説明
@@ -89,6 +164,8 @@ public class HttpRequestTimeMetricsMetaDataBuilder implements HandlerMetricsMeta
          * Actuator の uri は、リクエストを受けたパスの定義(/project/{id})が設定される。
          * しかし、このパス定義に該当する情報は、 Nablarch が利用している HTTP Request Router から取得できない。
          * したがって、本メトリクスでは uri の代わりに実行されたアクションクラスとメソッドの情報を出力している。
+         * ただし、ルーティングの定義と同じパス定義を setUriPatterns で設定した場合は、
+         * リクエストパスと照合した結果を uri タグとして出力する。
          * 参考: https://spring.pleiades.io/spring-boot/docs/2.3.4.RELEASE/reference/html/production-ready-features.html#production-ready-metrics-spring-mvc
          *
          * class, method タグの出力書式については、 Eclipse Microprofile の Metrics の仕様を参考にしている。
@@ -96,16 +173,53 @@ public class HttpRequestTimeMetricsMetaDataBuilder implements HandlerMetricsMeta
          * Microprofile の Metrics を実装している Open Liberty の実際の動作を参考にしている。
          * 参考: https://download.eclipse.org/microprofile/microprofile-metrics-2.3/microprofile-metrics-spec-2.3.html#_optional_rest
          */
-        return Arrays.asList(
-            // 静的解析で"UNKNOWN"が重複している警告が出るが、それぞれの"UNKNOWN"は値が同じだけで意味が異なるので指摘は該当しない
-            // （定数化しても、3つの別々の定数を宣言することになる）
-            Tag.of("class", clazz != null ? clazz.getName() : "UNKNOWN"),
-            Tag.of("method", method != null ? buildMethodTag(method) : "UNKNOWN"),
-            Tag.of("httpMethod", request.getMethod()),
-            Tag.of("status", String.valueOf(servletResponse.getStatus())),
-            Tag.of("outcome", resolveOutcome(servletResponse.getStatus())),
-            Tag.of("exception", resolveException(context, thrownThrowable))
-        );
+        // 静的解析で"UNKNOWN"が重複している警告が出るが、それぞれの"UNKNOWN"は値が同じだけで意味が異なるので指摘は該当しない
+        // （定数化しても、3つの別々の定数を宣言することになる）
+        int index = 0;
+        tagValues[index++] = clazz != null ? clazz.getName() : "UNKNOWN";
+        if (methodTagEnabled) {
+            tagValues[index++] = method != null ? resolveMethodTag(method) : "UNKNOWN";
+        }
+        if (uriPatternResolver != null) {
+            tagValues[index++] = uriPatternResolver.resolve(method, request.getRequestPath());
+        }
+        tagValues[index++] = request.getMethod();
+        tagValues[index++] = HttpStatusTags.status(status).getValue();
+        tagValues[index++] = HttpStatusTags.outcome(status).getValue();
+        tagValues[index] = resolveException(context, thrownThrowable);
+    }
+
+    /**
+     * 現在の設定に応じたタグのキーのリストを構築する。
+     * @return タグのキーのリスト
+     */
+    private List<String> buildTagKeys() {
+        List<String> keys = new ArrayList<>();
+        keys.add("class");
+        if (methodTagEnabled) {
+            keys.add("method");
+        }
+        if (uriPatternResolver != null) {
+            keys.add("uri");
+        }
+        keys.add("httpMethod");
+        keys.add(HttpStatusTags.STATUS_TAG_KEY);
+        keys.add(HttpStatusTags.OUTCOME_TAG_KEY);
+        keys.add("exception");
+        return List.copyOf(keys);
+    }
+
+    /**
+     * {@code method} タグに設定する値を、キャッシュを使って解決する。
+     * @param method 実行されたメソッド
+     * @return {@code method} タグに設定する値
+     */
+    private String resolveMethodTag(Method method) {
+        String methodTag = methodTagCache.get(method);
+        if (methodTag != null) {
+            return methodTag;
+        }
+        return methodTagCache.computeIfAbsent(method, this::buildMethodTag);
     }
 
     /**
@@ -123,27 +237,6 @@ public class HttpRequestTimeMetricsMetaDataBuilder implements HandlerMetricsMeta
         return sb.toString();
     }
 
-    /**
-     * {@code outcome} タグに設定する値を解決する。
-     * @param statusCode レスポンスのステータスコード
-     * @return {@code outcome} タグに設定する値
-     */
-    private String resolveOutcome(int statusCode) {
-        if (100 <= statusCode && statusCode < 200) {
-            return "INFORMATION";
-        } else if (200 <= statusCode && statusCode < 300) {
-            return "SUCCESS";
-        } else if (300 <= statusCode && statusCode < 400) {
-            return "REDIRECTION";
-        } else if (400 <= statusCode && statusCode < 500) {
-            return "CLIENT_ERROR";
-        } else if (500 <= statusCode && statusCode < 600) {
-            return "SERVER_ERROR";
-        } else {
-            return "UNKNOWN";
-        }
-    }
-
     /**
      * {@code exception} タグに設定する値を解決する。
      * @param context 実行コンテキスト
@@ -152,7 +245,7 @@ public class HttpRequestTimeMetricsMetaDataBuilder implements HandlerMetricsMeta
      */
     private String resolveException(ExecutionContext context, Throwable thrownThrowable) {
         Throwable throwable = thrownThrowable != null ? thrownThrowable : context.getException();
-        return throwable == null ? "None" : throwable.getClass().getSimpleName();
+        return throwable == null ? "None" : exceptionTagResolver.resolve(throwable.getClass());
     }
 
     @Override
@@ -180,4 +273,76 @@ public class HttpRequestTimeMetricsMetaDataBuilder implements HandlerMetricsMeta
     public void setMetricsDescription(String metricsDescription) {
         this.metricsDescription = metricsDescription;
     }
+
+    /**
+     * {@code exception} タグに値として使用する例外クラスの種類の上限を設定する。
+     * <p>
+     * 上限に達した後に初めてスローされた例外クラスの値は {@code OTHER} になる。<br>
+     * 未設定の場合は{@value ExceptionTagResolver#DEFAULT_MAX_DISTINCT_VALUES}になる。
+     * </p>
+     * @param maxExceptionTagValues {@code exception} タグに値として使用する例外クラスの種類の上限
+     */
+    public void setMaxExceptionTagValues(int maxExceptionTagValues) {
+        exceptionTagResolver.setMaxDistinctValues(maxExceptionTagValues);
+    }
+
+    /**
+     * {@code exception} タグに単純名を設定する例外クラスの完全修飾名の許可リストを設定する。
+     * <p>
+     * 許可リストに含まれない例外クラスの値は {@code OTHER} になる。<br>
+     * 未設定の場合は、全ての例外クラスが対象になる。
+     * </p>
+     * @param exceptionTagAllowList 例外クラスの完全修飾名の許可リスト
+     */
+    public void setExceptionTagAllowList(List<String> exceptionTagAllowList) {
+        exceptionTagResolver.setAllowedClassNames(exceptionTagAllowList);
+    }
+
+    /**
+     * {@code uri} タグの値として使用するURIパターンのリストを設定する。
+     * <p>
+     * URIパターンを設定すると、リクエストパスに一致したURIパターン（例:{@code /users/{id}}）が {@code uri} タグに設定される。<br>
+     * URIパターンは、ルーティングの定義と同じものを、より具体的なものから順に設定すること。
+     * </p>
+     * <p>
+     * パス中の可変値は、{@code {id}}または{@code :id}の形式で記述する。<br>
+     * また、{@code *}は{@code /}を含まない任意の文字列に一致する。
+     * </p>
+     * <p>
+     * 解決結果は、リクエストを処理したメソッドごとにキャッシュされる。<br>
+     * タグの構成が変わるため、このプロパティは最初のリクエストを計測する前に設定すること。
+     * </p>
+     * @param uriPatterns URIパターンのリスト
+     * @throws IllegalStateException 既にタグの構成が確定している場合
+     */
+    public void setUriPatterns(List<String> uriPatterns) {
+        checkTagKeysNotFixed();
+        this.uriPatternResolver = uriPatterns == null ? null : new UriPatternResolver(uriPatterns);
+    }
+
+    /**
+     * {@code method} タグを設定するかどうかを設定する。
+     * <p>
+     * {@code uri} タグでリクエストを識別できる場合は、{@code false}を設定することで
+     * メソッドのシグネチャを含む長いタグの値を出力しないようにできる。<br>
+     * デフォルトは{@code true}。<br>
+     * タグの構成が変わるため、このプロパティは最初のリクエストを計測する前に設定すること。
+     * </p>
+     * @param methodTagEnabled {@code method} タグを設定する場合は{@code true}
+     * @throws IllegalStateException 既にタグの構成が確定している場合
+     */
+    public void setMethodTagEnabled(boolean methodTagEnabled) {
+        checkTagKeysNotFixed();
+        this.methodTagEnabled = methodTagEnabled;
+    }
+
+    /**
+     * タグの構成がまだ確定していないことを確認する。
+     * @throws IllegalStateException 既にタグの構成が確定している場合
+     */
+    private void checkTagKeysNotFixed() {
+        if (tagKeys != null) {
+            throw new IllegalStateException("tagKeys is already fixed.");
+        }
+    }
 }
@@ -0,0 +1,103 @@
+package nablarch.integration.micrometer.instrument.http;
+
+import io.micrometer.core.instrument.Tag;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * HTTPステータスコードに対応する{@code status}タグと{@code outcome}タグを提供するクラス。
+ * <p>
+ * 100～599のステータスコードについては、あらかじめ生成した{@link Tag}を配列から返す。<br>
+ * それ以外のステータスコードの{@code status}タグは初回に生成してキャッシュするが、
+ * キャッシュの件数が上限に達した後は毎回生成する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+final class HttpStatusTags {
+    /** {@code status}タグのキー。 */
+    static final String STATUS_TAG_KEY = "status";
+    /** {@code outcome}タグのキー。 */
+    static final String OUTCOME_TAG_KEY = "outcome";
+
+    /** あらかじめタグを生成しておくステータスコードの下限。 */
+    private static final int MIN_STATUS_CODE = 100;
+    /** あらかじめタグを生成しておくステータスコードの上限。 */
+    private static final int MAX_STATUS_CODE = 599;
+    /** 範囲外のステータスコードのタグをキャッシュする件数の上限。 */
+    private static final int MAX_FALLBACK_CACHE_SIZE = 100;
+
+    /** ステータスコードごとの{@code status}タグ。 */
+    private static final Tag[] STATUS_TAGS = new Tag[MAX_STATUS_CODE - MIN_STATUS_CODE + 1];
+    /** ステータスコードの百の位ごとの{@code outcome}タグ。 */
+    private static final Tag[] OUTCOME_TAGS = {
+        Tag.of(OUTCOME_TAG_KEY, "INFORMATION"),
+        Tag.of(OUTCOME_TAG_KEY, "SUCCESS"),
+        Tag.of(OUTCOME_TAG_KEY, "REDIRECTION"),
+        Tag.of(OUTCOME_TAG_KEY, "CLIENT_ERROR"),
+        Tag.of(OUTCOME_TAG_KEY, "SERVER_ERROR"),
+    };
+    /** 範囲外のステータスコードの{@code outcome}タグ。 */
+    private static final Tag UNKNOWN_OUTCOME_TAG = Tag.of(OUTCOME_TAG_KEY, "UNKNOWN");
+    /** 範囲外のステータスコードの{@code status}タグのキャッシュ。 */
+    private static final ConcurrentMap<Integer, Tag> FALLBACK_STATUS_TAGS = new ConcurrentHashMap<>();
+
+    static {
+        for (int statusCode = MIN_STATUS_CODE; statusCode <= MAX_STATUS_CODE; statusCode++) {
+            STATUS_TAGS[statusCode - MIN_STATUS_CODE] = Tag.of(STATUS_TAG_KEY, String.valueOf(statusCode));
+        }
+    }
+
+    /**
+     * ステータスコードに対応する{@code status}タグを取得する。
+     * @param statusCode ステータスコード
+     * @return {@code status}タグ
+     */
+    static Tag status(int statusCode) {
+        if (isInRange(statusCode)) {
+            return STATUS_TAGS[statusCode - MIN_STATUS_CODE];
+        }
+
+        Tag tag = FALLBACK_STATUS_TAGS.get(statusCode);
+        if (tag != null) {
+            return tag;
+        }
+
+        tag = Tag.of(STATUS_TAG_KEY, String.valueOf(statusCode));
+        if (FALLBACK_STATUS_TAGS.size() < MAX_FALLBACK_CACHE_SIZE) {
+            Tag existing = FALLBACK_STATUS_TAGS.putIfAbsent(statusCode, tag);
+            return existing != null ? existing : tag;
+        }
+        return tag;
+    }
+
+    /**
+     * ステータスコードに対応する{@code outcome}タグを取得する。
+     * <p>
+     * 1XX は {@code INFORMATION}, 2XX は {@code SUCCESS}, 3XX は {@code REDIRECTION},
+     * 4XX は {@code CLIENT_ERROR}, 5XX は {@code SERVER_ERROR}, それ以外の場合は {@code UNKNOWN} になる。
+     * </p>
+     * @param statusCode ステータスコード
+     * @return {@code outcome}タグ
+     */
+    static Tag outcome(int statusCode) {
+        if (isInRange(statusCode)) {
+            return OUTCOME_TAGS[statusCode / 100 - 1];
+        }
+        return UNKNOWN_OUTCOME_TAG;
+    }
+
+    /**
+     * あらかじめタグを生成しているステータスコードか判定する。
+     * @param statusCode ステータスコード
+     * @return あらかじめタグを生成している場合は{@code true}
+     */
+    private static boolean isInRange(int statusCode) {
+        return MIN_STATUS_CODE <= statusCode && statusCode <= MAX_STATUS_CODE;
+    }
+
+    /**
+     * 本クラスはインスタンスを生成しない。
+     */
+    private HttpStatusTags() {}
+}
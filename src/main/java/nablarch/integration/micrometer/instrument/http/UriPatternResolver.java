@@ -0,0 +1,295 @@
+package nablarch.integration.micrometer.instrument.http;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * リクエストパスに一致するURIパターン({@code /users/{id}}など)を解決するクラス。
+ * <p>
+ * パターンは、{@code /}で区切られたセグメントごとに以下のように解釈する。
+ * <ul>
+ *   <li>{@code {name}}または{@code :name}: {@code /}を含まない1文字以上の任意の文字列</li>
+ *   <li>{@code *}: {@code /}を含まない任意の文字列</li>
+ *   <li>それ以外: 文字列そのもの</li>
+ * </ul>
+ * パターンは設定された順に評価し、最初に一致したものを返す。いずれにも一致しない場合は{@value #UNKNOWN}を返す。
+ * </p>
+ * <p>
+ * リクエストパスにはIDなどの可変値が含まれるため、解決結果はリクエストパスではなく、
+ * リクエストを処理したメソッドごとにキャッシュする。<br>
+ * メソッドごとに、これまでに一致したパターンを設定順に保持しておき、まずそれらのパターンだけを照合する。
+ * いずれにも一致しない場合だけ全てのパターンを照合し、一致したパターンを追加する。<br>
+ * キャッシュしたパターンが一致した場合は、それより前に設定されたパターンのうち同じパスに一致し得るもの
+ * （セグメントの数が同じで、各セグメントが両立するもの）も照合する。
+ * これにより、キャッシュを使用しても、設定された順に評価した場合と同じパターンが返る。<br>
+ * メソッドの種類とパターンの数はいずれも有限であるため、このキャッシュの件数に上限は設けていない。
+ * </p>
+ * <p>
+ * リクエストを処理したメソッドが不明な場合（静的ファイルや、ハンドラが見つからないリクエストなど）は、
+ * 解決結果をクエリ文字列を除いたリクエストパスごとにキャッシュする。<br>
+ * このキャッシュには{@value #MAX_PATH_CACHE_SIZE}件の上限があり、上限に達した後に初めて出現したリクエストパスは、
+ * キャッシュせずに毎回全てのパターンを照合する。
+ * </p>
+ * @author Tanaka Tomoyuki
+ */
+final class UriPatternResolver {
+    /** いずれのパターンにも一致しない場合の値。 */
+    static final String UNKNOWN = "UNKNOWN";
+    /** メソッドが不明な場合に、リクエストパスごとにキャッシュする件数の上限。 */
+    static final int MAX_PATH_CACHE_SIZE = 1000;
+    /** パターンが一致していない場合の、一致したパターンの位置の配列。 */
+    private static final int[] NO_INDICES = new int[0];
+
+    /** URIパターン。 */
+    private final List<String> uriPatterns;
+    /** URIパターンをコンパイルした正規表現。 */
+    private final List<Pattern> compiledPatterns;
+    /** パターンごとの、それより前に設定されたパターンのうち同じパスに一致し得るものの位置（設定順に並べたもの）。 */
+    private final int[][] precedingOverlaps;
+    /** メソッドごとの、これまでに一致したパターンの位置（設定順に並べたもの）。 */
+    private final ConcurrentMap<Method, int[]> matchedIndices = new ConcurrentHashMap<>();
+    /** メソッドが不明な場合の、リクエストパスごとの解決結果。 */
+    private final ConcurrentMap<String, String> resolvedByPath = new ConcurrentHashMap<>();
+
+    /**
+     * コンストラクタ。
+     * @param uriPatterns URIパターンのリスト
+     */
+    UriPatternResolver(List<String> uriPatterns) {
+        this.uriPatterns = List.copyOf(uriPatterns);
+        this.compiledPatterns = new ArrayList<>(uriPatterns.size());
+        for (String uriPattern : uriPatterns) {
+            compiledPatterns.add(compile(uriPattern));
+        }
+        this.precedingOverlaps = new int[this.uriPatterns.size()][];
+        for (int i = 0; i < precedingOverlaps.length; i++) {
+            precedingOverlaps[i] = findPrecedingOverlaps(i);
+        }
+    }
+
+    /**
+     * リクエストパスに一致するURIパターンを解決する。
+     * @param method リクエストを処理したメソッド（不明な場合は{@code null}）
+     * @param requestPath リクエストパス
+     * @return 一致したURIパターン（一致するものが無い場合は{@value #UNKNOWN}）
+     */
+    String resolve(Method method, String requestPath) {
+        if (requestPath == null) {
+            return UNKNOWN;
+        }
+        int queryIndex = requestPath.indexOf('?');
+        String path = queryIndex < 0 ? requestPath : requestPath.substring(0, queryIndex);
+
+        if (method == null) {
+            return resolveByPath(path);
+        }
+
+        int[] indices = matchedIndices.getOrDefault(method, NO_INDICES);
+        for (int index : indices) {
+            if (matches(index, path)) {
+                int preceding = matchPrecedingOverlap(index, path);
+                if (preceding < 0) {
+                    return uriPatterns.get(index);
+                }
+                return cache(method, preceding);
+            }
+        }
+
+        int index = match(path);
+        return index < 0 ? UNKNOWN : cache(method, index);
+    }
+
+    /**
+     * メソッドが不明な場合に、リクエストパスごとのキャッシュを使用してURIパターンを解決する。
+     * @param path クエリ文字列を除いたリクエストパス
+     * @return 一致したURIパターン（一致するものが無い場合は{@value #UNKNOWN}）
+     */
+    private String resolveByPath(String path) {
+        String resolved = resolvedByPath.get(path);
+        if (resolved != null) {
+            return resolved;
+        }
+
+        int index = match(path);
+        resolved = index < 0 ? UNKNOWN : uriPatterns.get(index);
+        if (resolvedByPath.size() < MAX_PATH_CACHE_SIZE) {
+            resolvedByPath.putIfAbsent(path, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * メソッドで一致したパターンをキャッシュに追加する。
+     * @param method リクエストを処理したメソッド
+     * @param index 一致したパターンの位置
+     * @return 一致したURIパターン
+     */
+    private String cache(Method method, int index) {
+        matchedIndices.merge(method, new int[] {index}, UriPatternResolver::union);
+        return uriPatterns.get(index);
+    }
+
+    /**
+     * 指定した位置のパターンがパスに一致するか判定する。
+     * @param index パターンの位置
+     * @param path クエリ文字列を除いたリクエストパス
+     * @return 一致する場合は{@code true}
+     */
+    private boolean matches(int index, String path) {
+        return compiledPatterns.get(index).matcher(path).matches();
+    }
+
+    /**
+     * 指定した位置のパターンより前に設定されたパターンのうち、パスに一致する最初のものを検索する。
+     * @param index パターンの位置
+     * @param path クエリ文字列を除いたリクエストパス
+     * @return 一致したパターンの位置（一致するものが無い場合は{@code -1}）
+     */
+    private int matchPrecedingOverlap(int index, String path) {
+        for (int preceding : precedingOverlaps[index]) {
+            if (matches(preceding, path)) {
+                return preceding;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * パスに一致するURIパターンを、全てのパターンから検索する。
+     * @param path クエリ文字列を除いたリクエストパス
+     * @return 一致したURIパターンの位置（一致するものが無い場合は{@code -1}）
+     */
+    private int match(String path) {
+        for (int i = 0; i < compiledPatterns.size(); i++) {
+            if (matches(i, path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 指定した位置のパターンより前に設定されたパターンのうち、同じパスに一致し得るものを検索する。
+     * @param index パターンの位置
+     * @return 同じパスに一致し得るパターンの位置（設定順）
+     */
+    private int[] findPrecedingOverlaps(int index) {
+        String[] segments = uriPatterns.get(index).split("/", -1);
+        int[] result = new int[index];
+        int size = 0;
+        for (int i = 0; i < index; i++) {
+            if (overlaps(segments, uriPatterns.get(i).split("/", -1))) {
+                result[size++] = i;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * 2つのパターンが、同じパスに一致し得るか判定する。
+     * <p>
+     * いずれのセグメントも{@code /}を含む文字列には一致しないため、セグメントの数が同じで、
+     * 対応するセグメントが全て両立する場合にだけ、同じパスに一致し得る。
+     * </p>
+     * @param segments 一方のパターンのセグメント
+     * @param otherSegments もう一方のパターンのセグメント
+     * @return 同じパスに一致し得る場合は{@code true}
+     */
+    private static boolean overlaps(String[] segments, String[] otherSegments) {
+        if (segments.length != otherSegments.length) {
+            return false;
+        }
+        for (int i = 0; i < segments.length; i++) {
+            if (!overlaps(segments[i], otherSegments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 2つのセグメントが、同じ文字列に一致し得るか判定する。
+     * @param segment 一方のセグメント
+     * @param otherSegment もう一方のセグメント
+     * @return 同じ文字列に一致し得る場合は{@code true}
+     */
+    private static boolean overlaps(String segment, String otherSegment) {
+        boolean literal = !isVariable(segment) && !segment.equals("*");
+        boolean otherLiteral = !isVariable(otherSegment) && !otherSegment.equals("*");
+        if (literal && otherLiteral) {
+            return segment.equals(otherSegment);
+        }
+        if (literal) {
+            return !segment.isEmpty() || otherSegment.equals("*");
+        }
+        if (otherLiteral) {
+            return !otherSegment.isEmpty() || segment.equals("*");
+        }
+        return true;
+    }
+
+    /**
+     * パターンの位置の配列を、重複を除いて設定順に結合する。
+     * @param current 現在の配列
+     * @param added 追加する配列
+     * @return 結合した配列
+     */
+    private static int[] union(int[] current, int[] added) {
+        int[] result = Arrays.copyOf(current, current.length + added.length);
+        int size = current.length;
+        for (int index : added) {
+            if (Arrays.binarySearch(result, 0, size, index) < 0) {
+                result[size++] = index;
+                Arrays.sort(result, 0, size);
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * メソッドが不明な場合の、リクエストパスごとのキャッシュの件数を取得する。
+     * @return キャッシュしている件数
+     */
+    int pathCacheSize() {
+        return resolvedByPath.size();
+    }
+
+    /**
+     * URIパターンを正規表現にコンパイルする。
+     * @param uriPattern URIパターン
+     * @return コンパイルした正規表現
+     */
+    private static Pattern compile(String uriPattern) {
+        StringBuilder regex = new StringBuilder();
+        String[] segments = uriPattern.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                regex.append('/');
+            }
+            String segment = segments[i];
+            if (isVariable(segment)) {
+                regex.append("[^/]+");
+            } else if (segment.equals("*")) {
+                regex.append("[^/]*");
+            } else if (!segment.isEmpty()) {
+                regex.append(Pattern.quote(segment));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * セグメントが可変値を表すか判定する。
+     * @param segment セグメント
+     * @return 可変値を表す場合は{@code true}
+     */
+    private static boolean isVariable(String segment) {
+        return (segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}"))
+                || (segment.length() > 1 && segment.startsWith(":"));
+    }
+}
@@ -0,0 +1,53 @@
+package nablarch.integration.micrometer.instrument;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * {@link ExceptionTagResolver}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class ExceptionTagResolverTest {
+    private final ExceptionTagResolver sut = new ExceptionTagResolver();
+
+    @Test
+    public void testResolveSimpleName() {
+        assertThat(sut.resolve(NullPointerException.class), is("NullPointerException"));
+        assertThat(sut.resolve(IllegalStateException.class), is("IllegalStateException"));
+    }
+
+    @Test
+    public void testResolvedValueIsCached() {
+        assertThat(sut.resolve(NullPointerException.class), is(sameInstance(sut.resolve(NullPointerException.class))));
+    }
+
+    @Test
+    public void testResolveOtherIfOverMaxDistinctValues() {
+        sut.setMaxDistinctValues(1);
+
+        assertThat(sut.resolve(NullPointerException.class), is("NullPointerException"));
+        assertThat(sut.resolve(IllegalStateException.class), is(ExceptionTagResolver.OTHER));
+        assertThat(sut.resolve(NullPointerException.class), is("NullPointerException"));
+    }
+
+    @Test
+    public void testResolveOtherIfNotInAllowList() {
+        sut.setAllowedClassNames(List.of(NullPointerException.class.getName()));
+
+        assertThat(sut.resolve(NullPointerException.class), is("NullPointerException"));
+        assertThat(sut.resolve(IllegalStateException.class), is(ExceptionTagResolver.OTHER));
+    }
+
+    @Test
+    public void testAllowAnyClassIfAllowListIsNull() {
+        sut.setAllowedClassNames(List.of(NullPointerException.class.getName()));
+        sut.setAllowedClassNames(null);
+
+        assertThat(sut.resolve(IllegalStateException.class), is("IllegalStateException"));
+    }
+}
@@ -0,0 +1,117 @@
+package nablarch.integration.micrometer.instrument;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * {@link MeterCache}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class MeterCacheTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void testReturnCachedMeter() {
+        MeterCache<String, Counter> sut = new MeterCache<>(registry);
+
+        Counter first = sut.get("foo", this::register);
+        Counter second = sut.get("foo", key -> {
+            throw new AssertionError("factory must not be called.");
+        });
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(sut.find("foo"), is(sameInstance(first)));
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void testNotCacheOverMaxSize() {
+        MeterCache<String, Counter> sut = new MeterCache<>(registry, 1);
+
+        sut.get("foo", this::register);
+        Counter bar = sut.get("bar", this::register);
+
+        assertThat(bar.getId().getTag("key"), is("bar"));
+        assertThat(sut.find("bar"), is(nullValue()));
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void testDiscardCacheIfMeterRegistryIsClosed() {
+        MeterCache<String, Counter> sut = new MeterCache<>(registry);
+        sut.get("foo", this::register);
+
+        registry.close();
+
+        assertThat(sut.find("foo"), is(nullValue()));
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void testDiscardCacheIfMeterIsRemoved() {
+        MeterCache<String, Counter> sut = new MeterCache<>(registry);
+        Counter foo = sut.get("foo", this::register);
+
+        registry.remove(foo);
+
+        assertThat(sut.find("foo"), is(nullValue()));
+        assertThat(sut.get("foo", this::register), is(not(sameInstance(foo))));
+    }
+
+    @Test
+    public void testDiscardAllKeysOfRemovedMeter() {
+        MeterCache<String, Counter> sut = new MeterCache<>(registry);
+        Counter foo = sut.get("foo", this::register);
+        sut.put("alias", foo);
+        Counter bar = sut.get("bar", this::register);
+
+        registry.remove(foo);
+
+        assertThat(sut.find("foo"), is(nullValue()));
+        assertThat(sut.find("alias"), is(nullValue()));
+        assertThat(sut.find("bar"), is(sameInstance(bar)));
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void testPut() {
+        MeterCache<String, Counter> sut = new MeterCache<>(registry, 1);
+        Counter foo = register("foo");
+
+        assertThat(sut.put("foo", foo), is(sameInstance(foo)));
+        assertThat(sut.put("foo", register("other")), is(sameInstance(foo)));
+
+        Counter bar = register("bar");
+        assertThat(sut.put("bar", bar), is(sameInstance(bar)));
+        assertThat(sut.find("bar"), is(nullValue()));
+    }
+
+    @Test
+    public void testClear() {
+        MeterCache<String, Counter> sut = new MeterCache<>(registry);
+        sut.get("foo", this::register);
+
+        sut.clear();
+
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void testThrowsExceptionIfMaxSizeIsNegative() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new MeterCache<String, Counter>(registry, -1));
+
+        assertThat(exception.getMessage(), is("maxSize must not be negative. maxSize=-1"));
+    }
+
+    private Counter register(String key) {
+        return Counter.builder("test.counter").tag("key", key).register(registry);
+    }
+}
@@ -0,0 +1,40 @@
+package nablarch.integration.micrometer.instrument;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * {@link TagValueLimiter}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class TagValueLimiterTest {
+    private final TagValueLimiter sut = new TagValueLimiter();
+
+    @Test
+    public void testLimitReturnsValueAsIs() {
+        assertThat(sut.limit("foo"), is("foo"));
+        assertThat(sut.limit("bar"), is("bar"));
+    }
+
+    @Test
+    public void testLimitReturnsOtherIfOverMaxDistinctValues() {
+        sut.setMaxDistinctValues(1);
+
+        assertThat(sut.limit("foo"), is("foo"));
+        assertThat(sut.limit("bar"), is(TagValueLimiter.OTHER));
+        assertThat(sut.limit("foo"), is("foo"));
+    }
+
+    @Test
+    public void testSetMaxDistinctValuesClearsAcceptedValues() {
+        sut.setMaxDistinctValues(1);
+        sut.limit("foo");
+
+        sut.setMaxDistinctValues(1);
+
+        assertThat(sut.limit("bar"), is("bar"));
+        assertThat(sut.limit("foo"), is(TagValueLimiter.OTHER));
+    }
+}
@@ -3,10 +3,13 @@ package nablarch.integration.micrometer.instrument.batch;
 import io.micrometer.core.instrument.Tag;
 import nablarch.integration.micrometer.instrument.batch.BatchActionClassTagUtil;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
 
 /**
  * {@link BatchActionClassTagUtil} の単体テスト。
@@ -14,6 +17,11 @@ import static org.hamcrest.Matchers.is;
  */
 public class BatchActionClassTagUtilTest {
 
+    @Before
+    public void setUp() {
+        BatchActionClassTagUtil.clearCache();
+    }
+
     @Test
     public void testObtain() {
         Tag result = BatchActionClassTagUtil.obtain("BatchActionClass/request-id");
@@ -28,4 +36,36 @@ public class BatchActionClassTagUtilTest {
 
         assertThat(result.getMessage(), is("Illegal requestPath format. requestPath='no-slash'."));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTagIsCachedPerRequestPath() {
+        Tag first = BatchActionClassTagUtil.obtain("CachedBatchAction/request-id");
+        Tag second = BatchActionClassTagUtil.obtain("CachedBatchAction/request-id");
+
+        assertThat(second, is(sameInstance(first)));
+    }
+
+    @Test
+    public void testCacheSizeIsBounded() {
+        for (int i = 0; i < BatchActionClassTagUtil.MAX_CACHE_SIZE + 10; i++) {
+            Tag result = BatchActionClassTagUtil.obtain("BatchAction" + i + "/request-id");
+            assertThat(result.getValue(), is("BatchAction" + i));
+        }
+
+        assertThat(BatchActionClassTagUtil.cacheSize(), is(lessThanOrEqualTo(BatchActionClassTagUtil.MAX_CACHE_SIZE)));
+    }
+
+    @Test
+    public void testSameResultAsSplit() {
+        String[] requestPaths = {"a/b", "a/b/c", "a//b", "/b", "//b", "a/", "a//", "/", "//", "", "a"};
+        for (String requestPath : requestPaths) {
+            String[] tokens = requestPath.split("/");
+            if (tokens.length < 2) {
+                IllegalArgumentException result = Assert.assertThrows(IllegalArgumentException.class, () -> BatchActionClassTagUtil.obtain(requestPath));
+                assertThat(result.getMessage(), is("Illegal requestPath format. requestPath='" + requestPath + "'."));
+            } else {
+                assertThat(requestPath, BatchActionClassTagUtil.obtain(requestPath).getValue(), is(tokens[0]));
+            }
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package nablarch.integration.micrometer.instrument.batch;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import nablarch.core.ThreadContext;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.time.Duration;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThrows;
 
 /**
@@ -55,6 +62,154 @@ public class BatchProcessedRecordCountMetricsLoggerTest {
         assertThat(counter.getId().getDescription(), is("Test metrics."));
     }
 
+    @Test
+    public void testPerThreadMetricsAreDisabledByDefault() {
+        sut.increment(2L);
+
+        assertThat(meterRegistry.find(BatchProcessedRecordCountMetricsLogger.THREAD_COUNT_METRICS_NAME).functionCounter(), is(nullValue()));
+        assertThat(meterRegistry.find(BatchProcessedRecordCountMetricsLogger.THREAD_RATE_METRICS_NAME).gauge(), is(nullValue()));
+    }
+
+    @Test
+    public void testPerThreadCount() throws Exception {
+        sut.setPerThreadMetricsEnabled(true);
+
+        Thread worker1 = new Thread(() -> {
+            ThreadContext.setRequestId("TestAction/test");
+            sut.increment(3L);
+            sut.increment(4L);
+        }, "worker-1");
+        Thread worker2 = new Thread(() -> {
+            ThreadContext.setRequestId("TestAction/test");
+            sut.increment(5L);
+        }, "worker-2");
+        worker1.start();
+        worker2.start();
+        worker1.join();
+        worker2.join();
+
+        FunctionCounter counter1 = meterRegistry.get(BatchProcessedRecordCountMetricsLogger.THREAD_COUNT_METRICS_NAME)
+                .tag("class", "TestAction").tag("thread", "worker-1").functionCounter();
+        assertThat(counter1.count(), is(7.0));
+        assertThat(counter1.getId().getDescription(), is(BatchProcessedRecordCountMetricsLogger.THREAD_COUNT_METRICS_DESCRIPTION));
+
+        FunctionCounter counter2 = meterRegistry.get(BatchProcessedRecordCountMetricsLogger.THREAD_COUNT_METRICS_NAME)
+                .tag("class", "TestAction").tag("thread", "worker-2").functionCounter();
+        assertThat(counter2.count(), is(5.0));
+
+        Counter total = meterRegistry.get(BatchProcessedRecordCountMetricsLogger.DEFAULT_METRICS_NAME).counter();
+        assertThat(total.count(), is(12.0));
+    }
+
+    @Test
+    public void testPerThreadRecordsPerSecond() {
+        MockClock clock = new MockClock();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        sut.setMeterRegistry(meterRegistry);
+        sut.setPerThreadMetricsEnabled(true);
+        sut.setPerThreadRateStepMillis(1000L);
+
+        sut.increment(10L);
+        Gauge gauge = meterRegistry.get(BatchProcessedRecordCountMetricsLogger.THREAD_RATE_METRICS_NAME)
+                .tag("class", "TestAction").tag("thread", Thread.currentThread().getName()).gauge();
+        assertThat(gauge.getId().getDescription(), is(BatchProcessedRecordCountMetricsLogger.THREAD_RATE_METRICS_DESCRIPTION));
+        // 最初のステップが終わるまでは0
+        assertThat(gauge.value(), is(0.0));
+
+        clock.add(Duration.ofSeconds(1));
+        assertThat(gauge.value(), is(10.0));
+
+        // 同じステップの間は、何度参照しても同じ値を返す
+        sut.increment(30L);
+        clock.add(Duration.ofMillis(500));
+        assertThat(gauge.value(), is(10.0));
+        assertThat(gauge.value(), is(10.0));
+
+        clock.add(Duration.ofMillis(500));
+        assertThat(gauge.value(), is(30.0));
+    }
+
+    @Test
+    public void testPerThreadRateStepDefault() {
+        MockClock clock = new MockClock();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        sut.setMeterRegistry(meterRegistry);
+        sut.setPerThreadMetricsEnabled(true);
+
+        sut.increment(120L);
+        Gauge gauge = meterRegistry.get(BatchProcessedRecordCountMetricsLogger.THREAD_RATE_METRICS_NAME).gauge();
+
+        clock.add(Duration.ofSeconds(59));
+        assertThat(gauge.value(), is(0.0));
+        clock.add(Duration.ofSeconds(1));
+        assertThat(gauge.value(), is(2.0));
+    }
+
+    @Test
+    public void testPerThreadCountIsSharedAmongRequestIdsOfSameClass() {
+        sut.setPerThreadMetricsEnabled(true);
+
+        sut.increment(3L);
+        ThreadContext.setRequestId("TestAction/other");
+        sut.increment(4L);
+        ThreadContext.setRequestId("TestAction/test");
+        sut.increment(5L);
+
+        FunctionCounter counter = meterRegistry.get(BatchProcessedRecordCountMetricsLogger.THREAD_COUNT_METRICS_NAME)
+                .tag("class", "TestAction").tag("thread", Thread.currentThread().getName()).functionCounter();
+        assertThat(counter.count(), is(12.0));
+        assertThat(meterRegistry.find(BatchProcessedRecordCountMetricsLogger.THREAD_COUNT_METRICS_NAME).functionCounters().size(), is(1));
+    }
+
+    @Test
+    public void testPerThreadCountContinuesAfterTerminate() throws Exception {
+        sut.setPerThreadMetricsEnabled(true);
+
+        Thread worker = new Thread(() -> {
+            ThreadContext.setRequestId("TestAction/test");
+            sut.increment(3L);
+        }, "worker-1");
+        worker.start();
+        worker.join();
+
+        sut.terminate();
+
+        Thread nextWorker = new Thread(() -> {
+            ThreadContext.setRequestId("TestAction/test");
+            sut.increment(4L);
+        }, "worker-1");
+        nextWorker.start();
+        nextWorker.join();
+
+        FunctionCounter counter = meterRegistry.get(BatchProcessedRecordCountMetricsLogger.THREAD_COUNT_METRICS_NAME)
+                .tag("class", "TestAction").tag("thread", "worker-1").functionCounter();
+        assertThat(counter.count(), is(7.0));
+    }
+
+    @Test
+    public void testBatchProgressMetrics() {
+        BatchProgressMetrics batchProgressMetrics = new BatchProgressMetrics();
+        sut.setBatchProgressMetrics(batchProgressMetrics);
+        batchProgressMetrics.setTotalRecordCount(10L);
+
+        sut.initialize();
+        sut.increment(3L);
+        sut.increment(4L);
+
+        assertThat(meterRegistry.get(BatchProgressMetrics.TOTAL_RECORDS_METRICS_NAME).gauge().value(), is(10.0));
+        assertThat(meterRegistry.get(BatchProgressMetrics.PROCESSED_RECORDS_METRICS_NAME).gauge().value(), is(7.0));
+    }
+
+    @Test
+    public void testThrowExceptionOnInitializeIfMeterRegistryIsNullWithBatchProgressMetrics() {
+        sut.setMeterRegistry(null);
+        sut.setBatchProgressMetrics(new BatchProgressMetrics());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> sut.initialize());
+
+        assertThat(exception.getMessage(), is("meterRegistry is null."));
+    }
+
     @Test
     public void testThrowExceptionIfMeterRegistryIsNull() {
         sut.setMeterRegistry(null);
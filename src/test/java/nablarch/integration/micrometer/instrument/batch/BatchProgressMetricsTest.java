@@ -0,0 +1,99 @@
+package nablarch.integration.micrometer.instrument.batch;
+
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * {@link BatchProgressMetrics}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class BatchProgressMetricsTest {
+    private final MockClock clock = new MockClock();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+
+    @Test
+    public void testProgressAndRemainingTime() {
+        BatchProgressMetrics sut = new BatchProgressMetrics();
+        sut.bindTo(registry);
+        sut.setTotalRecordCount(1000L);
+
+        clock.add(Duration.ofSeconds(10));
+        sut.addProcessedRecordCount(100L);
+        sut.addProcessedRecordCount(100L);
+
+        assertThat(registry.get(BatchProgressMetrics.TOTAL_RECORDS_METRICS_NAME).gauge().value(), is(1000.0));
+        assertThat(registry.get(BatchProgressMetrics.PROCESSED_RECORDS_METRICS_NAME).gauge().value(), is(200.0));
+        assertThat(registry.get(BatchProgressMetrics.THROUGHPUT_METRICS_NAME).gauge().value(), is(20.0));
+
+        TimeGauge remainingTime = registry.get(BatchProgressMetrics.REMAINING_TIME_METRICS_NAME).timeGauge();
+        assertThat(remainingTime.value(TimeUnit.SECONDS), is(40.0));
+    }
+
+    @Test
+    public void testRemainingTimeIsZeroIfAllRecordsAreProcessed() {
+        BatchProgressMetrics sut = new BatchProgressMetrics();
+        sut.bindTo(registry);
+        sut.setTotalRecordCount(10L);
+
+        clock.add(Duration.ofSeconds(1));
+        sut.addProcessedRecordCount(10L);
+
+        assertThat(registry.get(BatchProgressMetrics.REMAINING_TIME_METRICS_NAME).timeGauge().value(TimeUnit.SECONDS), is(0.0));
+    }
+
+    @Test
+    public void testNaNIfProgressCannotBeEstimated() {
+        BatchProgressMetrics sut = new BatchProgressMetrics();
+        sut.bindTo(registry);
+
+        assertThat(registry.get(BatchProgressMetrics.TOTAL_RECORDS_METRICS_NAME).gauge().value(), is(Double.NaN));
+        assertThat(registry.get(BatchProgressMetrics.REMAINING_TIME_METRICS_NAME).timeGauge().value(TimeUnit.SECONDS), is(Double.NaN));
+
+        // 総件数を設定しても、まだ処理していなければ予測できない
+        sut.setTotalRecordCount(10L);
+        clock.add(Duration.ofSeconds(1));
+        assertThat(registry.get(BatchProgressMetrics.THROUGHPUT_METRICS_NAME).gauge().value(), is(0.0));
+        assertThat(registry.get(BatchProgressMetrics.REMAINING_TIME_METRICS_NAME).timeGauge().value(TimeUnit.SECONDS), is(Double.NaN));
+    }
+
+    @Test
+    public void testStartTimeIsFirstBind() {
+        BatchProgressMetrics sut = new BatchProgressMetrics();
+        sut.bindTo(registry);
+
+        clock.add(Duration.ofSeconds(5));
+        SimpleMeterRegistry anotherRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        sut.bindTo(anotherRegistry);
+
+        clock.add(Duration.ofSeconds(5));
+        sut.addProcessedRecordCount(50L);
+
+        assertThat(anotherRegistry.get(BatchProgressMetrics.THROUGHPUT_METRICS_NAME).gauge().value(), is(5.0));
+    }
+
+    @Test
+    public void testTags() {
+        BatchProgressMetrics sut = new BatchProgressMetrics(List.of(Tag.of("foo", "FOO")));
+        sut.bindTo(registry);
+
+        assertThat(registry.get(BatchProgressMetrics.TOTAL_RECORDS_METRICS_NAME).tag("foo", "FOO").gauge().getId().getDescription(),
+                is("Total count of records to be processed."));
+        assertThat(registry.get(BatchProgressMetrics.PROCESSED_RECORDS_METRICS_NAME).tag("foo", "FOO").gauge().getId().getDescription(),
+                is("Count of processed records."));
+        assertThat(registry.get(BatchProgressMetrics.THROUGHPUT_METRICS_NAME).tag("foo", "FOO").gauge().getId().getDescription(),
+                is("Average count of processed records per second."));
+        assertThat(registry.get(BatchProgressMetrics.REMAINING_TIME_METRICS_NAME).tag("foo", "FOO").timeGauge().getId().getDescription(),
+                is("Estimated time remaining to process all records."));
+    }
+}
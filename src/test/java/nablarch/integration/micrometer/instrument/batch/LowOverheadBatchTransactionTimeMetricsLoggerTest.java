@@ -0,0 +1,200 @@
+package nablarch.integration.micrometer.instrument.batch;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nablarch.core.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * {@link LowOverheadBatchTransactionTimeMetricsLogger}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class LowOverheadBatchTransactionTimeMetricsLoggerTest {
+    private LowOverheadBatchTransactionTimeMetricsLogger sut = new LowOverheadBatchTransactionTimeMetricsLogger();
+    private String originalRequestId;
+
+    @Before
+    public void setup() {
+        originalRequestId = ThreadContext.getRequestId();
+        ThreadContext.setRequestId("TestBatchAction/test");
+    }
+
+    @Test
+    public void testMeasureTime() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, new Clock() {
+            // 1つ目の値が計測開始時刻、以降は各コミットの時刻を表している。
+            Iterator<Long> monotonicTimes = Arrays.asList(
+                1000L,
+                2500L,
+                3000L).iterator();
+
+            @Override
+            public long monotonicTime() {
+                return monotonicTimes.next();
+            }
+
+            @Override
+            public long wallTime() {
+                return 0;
+            }
+        });
+        sut.setMeterRegistry(meterRegistry);
+
+        sut.initialize();
+        sut.increment(0L);
+        Timer timer = meterRegistry.find(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME).timer();
+        assertThat(timer.getId().getTag("class"), is("TestBatchAction"));
+        assertThat(timer.getId().getDescription(), is(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_DESCRIPTION));
+
+        assertThat(timer.count(), is(1L));
+        assertThat(timer.totalTime(TimeUnit.NANOSECONDS), is(1500.0));
+
+        sut.increment(0L);
+        assertThat(timer.count(), is(2L));
+        assertThat(timer.totalTime(TimeUnit.NANOSECONDS), is(2000.0));
+    }
+
+    @Test
+    public void testTimerIsCachedPerRequestId() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        sut.setMeterRegistry(meterRegistry);
+
+        sut.initialize();
+        sut.increment(0L);
+        Timer first = meterRegistry.find(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME).tag("class", "TestBatchAction").timer();
+
+        meterRegistry.remove(first);
+        sut.increment(0L);
+        Timer second = meterRegistry.find(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME).tag("class", "TestBatchAction").timer();
+        assertThat(second, is(notNullValue()));
+
+        sut.increment(0L);
+        assertThat(meterRegistry.find(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME).tag("class", "TestBatchAction").timer(),
+                is(sameInstance(second)));
+        assertThat(second.count(), is(2L));
+
+        ThreadContext.setRequestId("OtherBatchAction/test");
+        sut.increment(0L);
+        assertThat(meterRegistry.find(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME).tag("class", "OtherBatchAction").timer().count(),
+                is(1L));
+    }
+
+    @Test
+    public void testChildThreadStartsFromInitializedTime() throws Exception {
+        MockClock clock = new MockClock();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        sut.setMeterRegistry(meterRegistry);
+
+        sut.initialize();
+        clock.add(100, TimeUnit.NANOSECONDS);
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread worker = new Thread(() -> {
+            try {
+                ThreadContext.setRequestId("TestBatchAction/test");
+                sut.increment(0L);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        worker.start();
+        worker.join();
+
+        assertThat(error.get(), is(nullValue()));
+        Timer timer = meterRegistry.find(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME).timer();
+        assertThat(timer.totalTime(TimeUnit.NANOSECONDS), is(100.0));
+    }
+
+    @Test
+    public void testSetMetricsNameAndDescription() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        sut.setMeterRegistry(meterRegistry);
+
+        sut.setMetricsName("test.metrics");
+        sut.setMetricsDescription("Test metrics.");
+
+        sut.initialize();
+        sut.increment(0L);
+
+        Timer timer = meterRegistry.find("test.metrics").timer();
+        assertThat(timer.getId().getDescription(), is("Test metrics."));
+    }
+
+    @Test
+    public void testFirstCommitIsNotRecordedIfNotInitialized() throws Exception {
+        MockClock clock = new MockClock();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        sut.setMeterRegistry(meterRegistry);
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread worker = new Thread(() -> {
+            try {
+                ThreadContext.setRequestId("TestBatchAction/test");
+                clock.add(100, TimeUnit.NANOSECONDS);
+                sut.increment(0L);
+                clock.add(30, TimeUnit.NANOSECONDS);
+                sut.increment(0L);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        worker.start();
+        worker.join();
+
+        assertThat(error.get(), is(nullValue()));
+        Timer timer = meterRegistry.find(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME).timer();
+        assertThat(timer.count(), is(1L));
+        assertThat(timer.totalTime(TimeUnit.NANOSECONDS), is(30.0));
+    }
+
+    @Test
+    public void testSettingChangeAfterUseIsApplied() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        sut.setMeterRegistry(meterRegistry);
+        sut.initialize();
+        sut.increment(0L);
+
+        sut.setMetricsName("test.metrics");
+        sut.increment(0L);
+
+        assertThat(meterRegistry.find(BatchTransactionTimeMetricsLogger.DEFAULT_METRICS_NAME).timer().count(), is(1L));
+        assertThat(meterRegistry.find("test.metrics").timer().count(), is(1L));
+    }
+
+    @Test
+    public void testThrowsExceptionIfMeterRegistryIsNull() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> sut.initialize());
+
+        assertThat(exception.getMessage(), is("meterRegistry is null."));
+    }
+
+    @Test
+    public void testIncrementThrowsExceptionIfMeterRegistryIsNull() {
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> sut.increment(0L));
+
+        assertThat(exception.getMessage(), is("meterRegistry is null."));
+    }
+
+    @After
+    public void teardown() {
+        sut.terminate();
+        ThreadContext.setRequestId(originalRequestId);
+    }
+}
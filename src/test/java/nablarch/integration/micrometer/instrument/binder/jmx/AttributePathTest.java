@@ -0,0 +1,74 @@
+package nablarch.integration.micrometer.instrument.binder.jmx;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * {@link AttributePath}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class AttributePathTest {
+    private CompositeType usageType;
+    private CompositeData usage;
+    private TabularDataSupport usageByPool;
+
+    @Before
+    public void setUp() throws Exception {
+        usageType = new CompositeType("Usage", "Usage",
+                new String[] {"used", "max"}, new String[] {"used", "max"},
+                new OpenType<?>[] {SimpleType.LONG, SimpleType.LONG});
+        usage = new CompositeDataSupport(usageType, new String[] {"used", "max"}, new Object[] {10L, 100L});
+
+        CompositeType rowType = new CompositeType("Row", "Row",
+                new String[] {"key", "value"}, new String[] {"key", "value"},
+                new OpenType<?>[] {SimpleType.STRING, usageType});
+        usageByPool = new TabularDataSupport(new TabularType("UsageByPool", "UsageByPool", rowType, new String[] {"key"}));
+        usageByPool.put(new CompositeDataSupport(rowType, new String[] {"key", "value"}, new Object[] {"Old Gen", usage}));
+    }
+
+    @Test
+    public void testEmptyPathReturnsValueAsIs() {
+        assertThat(AttributePath.parse(null), is(sameInstance(AttributePath.EMPTY)));
+        assertThat(AttributePath.parse(""), is(sameInstance(AttributePath.EMPTY)));
+        assertThat(AttributePath.EMPTY.resolve(usage), is(sameInstance(usage)));
+    }
+
+    @Test
+    public void testResolveCompositeDataItem() {
+        assertThat(AttributePath.parse("used").resolve(usage), is(10L));
+    }
+
+    @Test
+    public void testResolveTabularDataRow() {
+        assertThat(AttributePath.parse("Old Gen.value.max").resolve(usageByPool), is(100L));
+    }
+
+    @Test
+    public void testResolveReturnsNullIfPathCannotBeFollowed() {
+        assertThat(AttributePath.parse("unknown").resolve(usage), is(nullValue()));
+        assertThat(AttributePath.parse("Eden Space.value.used").resolve(usageByPool), is(nullValue()));
+        assertThat(AttributePath.parse("used.more").resolve(usage), is(nullValue()));
+        assertThat(AttributePath.parse("used").resolve(null), is(nullValue()));
+    }
+
+    @Test
+    public void testThrowsExceptionIfPathContainsEmptySegment() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> AttributePath.parse("used..max"));
+
+        assertThat(exception.getMessage(), is("path must not contain empty segment. path=used..max"));
+    }
+}
@@ -0,0 +1,181 @@
+package nablarch.integration.micrometer.instrument.binder.jmx;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link BulkJmxGaugeMetrics}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class BulkJmxGaugeMetricsTest {
+    private final MockedStatic<ManagementFactory> managementFactoryMockedStatic = mockStatic(ManagementFactory.class);
+    private final MBeanServer mBeanServer = mock(MBeanServer.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MockClock clock = new MockClock();
+
+    private ObjectName fooObjectName;
+    private ObjectName barObjectName;
+
+    @Before
+    public void setUp() throws Exception {
+        managementFactoryMockedStatic.when(ManagementFactory::getPlatformMBeanServer).thenReturn(mBeanServer);
+
+        fooObjectName = new ObjectName("test:type=Foo");
+        barObjectName = new ObjectName("test:type=Bar");
+
+        BulkJmxGaugeMetrics sut = new BulkJmxGaugeMetrics(Arrays.asList(
+                jmxGaugeMetrics("foo.active", "test:type=Foo", "Active"),
+                jmxGaugeMetrics("foo.idle", "test:type=Foo", "Idle"),
+                jmxGaugeMetrics("foo.name", "test:type=Foo", "Name"),
+                jmxGaugeMetrics("bar.count", "test:type=Bar", "Count")));
+        sut.setClock(clock);
+        sut.bindTo(meterRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        managementFactoryMockedStatic.close();
+    }
+
+    @Test
+    public void testAttributesOfSameMBeanAreObtainedAtOnce() throws Exception {
+        when(mBeanServer.getAttributes(eq(fooObjectName), any())).thenReturn(new AttributeList(List.of(
+                new Attribute("Active", 3), new Attribute("Idle", 7), new Attribute("Name", "pool"))));
+        when(mBeanServer.getAttributes(eq(barObjectName), any())).thenReturn(new AttributeList(List.of(
+                new Attribute("Count", 10L))));
+
+        assertThat(gauge("foo.active").value(), is(3.0));
+        assertThat(gauge("foo.idle").value(), is(7.0));
+        assertThat(gauge("foo.name").value(), is(Double.NaN));
+        assertThat(gauge("bar.count").value(), is(10.0));
+
+        verify(mBeanServer, times(1)).getAttributes(fooObjectName, new String[] {"Active", "Idle", "Name"});
+        verify(mBeanServer, times(1)).getAttributes(barObjectName, new String[] {"Count"});
+        verify(mBeanServer, times(0)).getAttribute(any(), any());
+    }
+
+    @Test
+    public void testAttributesAreObtainedAgainInNextCycle() throws Exception {
+        when(mBeanServer.getAttributes(eq(fooObjectName), any()))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 3), new Attribute("Idle", 7))))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 4), new Attribute("Idle", 6))));
+
+        assertThat(gauge("foo.active").value(), is(3.0));
+        assertThat(gauge("foo.idle").value(), is(7.0));
+
+        clock.add(Duration.ofMillis(BulkJmxGaugeMetrics.DEFAULT_CACHE_TIME_TO_LIVE_MILLIS));
+        assertThat(gauge("foo.active").value(), is(4.0));
+        assertThat(gauge("foo.idle").value(), is(6.0));
+
+        verify(mBeanServer, times(2)).getAttributes(eq(fooObjectName), any());
+    }
+
+    @Test
+    public void testAttributesAreNotObtainedAgainWithinTimeToLiveEvenIfReadTwice() throws Exception {
+        when(mBeanServer.getAttributes(eq(fooObjectName), any()))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 3))))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 4))));
+
+        assertThat(gauge("foo.active").value(), is(3.0));
+        clock.add(Duration.ofMillis(BulkJmxGaugeMetrics.DEFAULT_CACHE_TIME_TO_LIVE_MILLIS - 1));
+        assertThat(gauge("foo.active").value(), is(3.0));
+
+        verify(mBeanServer, times(1)).getAttributes(eq(fooObjectName), any());
+    }
+
+    @Test
+    public void testAttributesAreObtainedEveryTimeIfTimeToLiveIsZero() throws Exception {
+        BulkJmxGaugeMetrics sut = new BulkJmxGaugeMetrics(List.of(
+                jmxGaugeMetrics("baz.active", "test:type=Baz", "Active")));
+        sut.setCacheTimeToLiveMillis(0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sut.bindTo(registry);
+
+        ObjectName bazObjectName = new ObjectName("test:type=Baz");
+        when(mBeanServer.getAttributes(eq(bazObjectName), any()))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 1))))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 2))));
+
+        assertThat(registry.find("baz.active").gauge().value(), is(1.0));
+        assertThat(registry.find("baz.active").gauge().value(), is(2.0));
+    }
+
+    @Test
+    public void testGaugeValueIsNaNIfAttributeIsMissing() throws Exception {
+        when(mBeanServer.getAttributes(eq(fooObjectName), any()))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 3))));
+
+        assertThat(gauge("foo.idle").value(), is(Double.NaN));
+    }
+
+    @Test
+    public void testMetricsMetaData() {
+        Gauge gauge = gauge("foo.active");
+
+        assertThat(gauge.getId().getDescription(), is("foo.active description"));
+        assertThat(gauge.getId().getTag("pool"), is("test"));
+    }
+
+    @Test
+    public void testSnapshotIsSharedAmongRegistriesWithinTimeToLive() throws Exception {
+        MockClock clock = new MockClock();
+        BulkJmxGaugeMetrics sut = new BulkJmxGaugeMetrics(List.of(
+                jmxGaugeMetrics("baz.active", "test:type=Baz", "Active")));
+        sut.setClock(clock);
+        sut.setCacheTimeToLiveMillis(1000);
+        SimpleMeterRegistry first = new SimpleMeterRegistry();
+        SimpleMeterRegistry second = new SimpleMeterRegistry();
+        sut.bindTo(first);
+        sut.bindTo(second);
+
+        ObjectName bazObjectName = new ObjectName("test:type=Baz");
+        when(mBeanServer.getAttributes(eq(bazObjectName), any()))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 1))))
+                .thenReturn(new AttributeList(List.of(new Attribute("Active", 2))));
+
+        assertThat(first.find("baz.active").gauge().value(), is(1.0));
+        assertThat(second.find("baz.active").gauge().value(), is(1.0));
+        assertThat(first.find("baz.active").gauge().value(), is(1.0));
+        verify(mBeanServer, times(1)).getAttributes(eq(bazObjectName), any());
+
+        clock.add(Duration.ofMillis(1000));
+        assertThat(second.find("baz.active").gauge().value(), is(2.0));
+        verify(mBeanServer, times(2)).getAttributes(eq(bazObjectName), any());
+    }
+
+    private Gauge gauge(String name) {
+        return meterRegistry.find(name).gauge();
+    }
+
+    private static JmxGaugeMetrics jmxGaugeMetrics(String name, String objectName, String attribute) {
+        return new JmxGaugeMetrics(
+                new MetricsMetaData(name, name + " description", List.of(Tag.of("pool", "test"))),
+                new MBeanAttributeCondition(objectName, attribute));
+    }
+}
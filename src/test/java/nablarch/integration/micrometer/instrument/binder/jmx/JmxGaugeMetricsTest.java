@@ -2,6 +2,7 @@ package nablarch.integration.micrometer.instrument.binder.jmx;
 
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MockClock;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import nablarch.integration.micrometer.MockJulHandler;
@@ -14,10 +15,17 @@ import org.mockito.MockedStatic;
 import javax.management.AttributeNotFoundException;
 import javax.management.JMException;
 import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
 import java.lang.management.ManagementFactory;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -26,9 +34,13 @@ import java.util.logging.Logger;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -118,6 +130,91 @@ public class JmxGaugeMetricsTest {
         assertThat(logRecord.getThrown().getCause(), is(jmException));
     }
 
+    @Test
+    public void testMBeanServerIsObtainedOnlyOnBind() throws Exception {
+        when(mBeanServer.getAttribute(objectName, attributeName)).thenReturn(12.34);
+
+        Gauge gauge = meterRegistry.find(metricsMetaData.getName()).gauge();
+        gauge.value();
+        gauge.value();
+
+        managementFactoryMockedStatic.verify(ManagementFactory::getPlatformMBeanServer, times(1));
+    }
+
+    @Test
+    public void testThrowsExceptionOnBindIfObjectNameIsMalformed() {
+        JmxGaugeMetrics sut = new JmxGaugeMetrics(metricsMetaData, new MBeanAttributeCondition("malformed", attributeName));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> sut.bindTo(new SimpleMeterRegistry()));
+
+        assertThat(exception.getMessage(), is("objectName is invalid. objectName=malformed"));
+        assertThat(exception.getCause(), is(instanceOf(MalformedObjectNameException.class)));
+    }
+
+    @Test
+    public void testThrowsExceptionOnBindIfObjectNameIsNull() {
+        JmxGaugeMetrics sut = new JmxGaugeMetrics(metricsMetaData, new MBeanAttributeCondition(null, attributeName));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> sut.bindTo(new SimpleMeterRegistry()));
+
+        assertThat(exception.getMessage(), is("objectName is null."));
+    }
+
+    @Test
+    public void testCachedValueIsSharedAmongRegistriesWithinTimeToLive() throws Exception {
+        MockClock clock = new MockClock();
+        sut.setClock(clock);
+        sut.setCacheTimeToLiveMillis(1000);
+        SimpleMeterRegistry anotherMeterRegistry = new SimpleMeterRegistry();
+        sut.bindTo(anotherMeterRegistry);
+
+        when(mBeanServer.getAttribute(objectName, attributeName)).thenReturn(1.0, 2.0);
+
+        assertThat(meterRegistry.find(metricsMetaData.getName()).gauge().value(), is(1.0));
+        clock.add(Duration.ofMillis(999));
+        assertThat(anotherMeterRegistry.find(metricsMetaData.getName()).gauge().value(), is(1.0));
+        verify(mBeanServer, times(1)).getAttribute(objectName, attributeName);
+
+        clock.add(Duration.ofMillis(1));
+        assertThat(anotherMeterRegistry.find(metricsMetaData.getName()).gauge().value(), is(2.0));
+        verify(mBeanServer, times(2)).getAttribute(objectName, attributeName);
+    }
+
+    @Test
+    public void testValueIsNotCachedInDefault() throws Exception {
+        when(mBeanServer.getAttribute(objectName, attributeName)).thenReturn(1.0, 2.0);
+
+        Gauge gauge = meterRegistry.find(metricsMetaData.getName()).gauge();
+
+        assertThat(gauge.value(), is(1.0));
+        assertThat(gauge.value(), is(2.0));
+    }
+
+    @Test
+    public void testMeasureGaugeValueFromCompositeDataItemSpecifiedByPath() throws Exception {
+        CompositeType usageType = new CompositeType("Usage", "Usage",
+                new String[] {"used", "max"}, new String[] {"used", "max"},
+                new OpenType<?>[] {SimpleType.LONG, SimpleType.LONG});
+        when(mBeanServer.getAttribute(objectName, attributeName)).thenReturn(
+                new CompositeDataSupport(usageType, new String[] {"used", "max"}, new Object[] {10L, 100L}));
+
+        JmxGaugeMetrics sut = new JmxGaugeMetrics(new MetricsMetaData("metrics.used", "Used", Collections.emptyList()),
+                new MBeanAttributeCondition(objectName.getCanonicalName(), attributeName, "used"));
+        sut.bindTo(meterRegistry);
+
+        assertThat(meterRegistry.find("metrics.used").gauge().value(), is(10.0));
+    }
+
+    @Test
+    public void testThrowsExceptionOnBindIfPathIsInvalid() {
+        JmxGaugeMetrics sut = new JmxGaugeMetrics(metricsMetaData,
+                new MBeanAttributeCondition(objectName.getCanonicalName(), attributeName, "used."));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> sut.bindTo(new SimpleMeterRegistry()));
+
+        assertThat(exception.getMessage(), is("path must not contain empty segment. path=used."));
+    }
+
     private Object[] toArray(Iterable<Tag> tags) {
         List<Tag> list = new ArrayList<>();
         tags.iterator().forEachRemaining(list::add);
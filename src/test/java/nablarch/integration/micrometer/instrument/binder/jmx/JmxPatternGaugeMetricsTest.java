@@ -0,0 +1,120 @@
+package nablarch.integration.micrometer.instrument.binder.jmx;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mockStatic;
+
+/**
+ * {@link JmxPatternGaugeMetrics}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class JmxPatternGaugeMetricsTest {
+    private final MockedStatic<ManagementFactory> managementFactoryMockedStatic = mockStatic(ManagementFactory.class);
+    private final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JmxPatternGaugeMetrics sut;
+
+    @Before
+    public void setUp() throws Exception {
+        managementFactoryMockedStatic.when(ManagementFactory::getPlatformMBeanServer).thenReturn(mBeanServer);
+
+        mBeanServer.registerMBean(new Pool(3), new ObjectName("test:type=Pool,name=first"));
+        mBeanServer.registerMBean(new Pool(99), new ObjectName("test:type=Other,name=other"));
+
+        sut = new JmxPatternGaugeMetrics(
+                new MetricsMetaData("pool.active", "Active count.", List.of(Tag.of("foo", "FOO"))),
+                new MBeanAttributeCondition("test:type=Pool,name=*", "Active"));
+        sut.bindTo(meterRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        sut.close();
+        managementFactoryMockedStatic.close();
+    }
+
+    @Test
+    public void testGaugeIsRegisteredForEachMatchedMBean() {
+        assertThat(meterRegistry.find("pool.active").gauges(), hasSize(1));
+
+        Gauge gauge = findGauge("first");
+        assertThat(gauge.value(), is(3.0));
+        assertThat(gauge.getId().getDescription(), is("Active count."));
+        assertThat(gauge.getId().getTag("foo"), is("FOO"));
+        assertThat(gauge.getId().getTag("type"), is("Pool"));
+    }
+
+    @Test
+    public void testGaugeIsAddedWhenMBeanIsRegistered() throws Exception {
+        mBeanServer.registerMBean(new Pool(5), new ObjectName("test:type=Pool,name=second"));
+        mBeanServer.registerMBean(new Pool(7), new ObjectName("test:type=Other,name=second"));
+
+        assertThat(meterRegistry.find("pool.active").gauges(), hasSize(2));
+        assertThat(findGauge("second").value(), is(5.0));
+    }
+
+    @Test
+    public void testGaugeIsRemovedWhenMBeanIsUnregistered() throws Exception {
+        mBeanServer.unregisterMBean(new ObjectName("test:type=Pool,name=first"));
+
+        assertThat(findGauge("first"), is(nullValue()));
+    }
+
+    @Test
+    public void testGaugeIsNotAddedAfterClose() throws Exception {
+        sut.close();
+
+        mBeanServer.registerMBean(new Pool(5), new ObjectName("test:type=Pool,name=second"));
+
+        assertThat(findGauge("second"), is(nullValue()));
+    }
+
+    private Gauge findGauge(String name) {
+        return meterRegistry.find("pool.active").tag("name", name).gauge();
+    }
+
+    /**
+     * テスト用のMBeanのインタフェース。
+     */
+    public interface PoolMBean {
+        /**
+         * アクティブな数を取得する。
+         * @return アクティブな数
+         */
+        int getActive();
+    }
+
+    /**
+     * テスト用のMBean。
+     */
+    public static class Pool implements PoolMBean {
+        private final int active;
+
+        Pool(int active) {
+            this.active = active;
+        }
+
+        @Override
+        public int getActive() {
+            return active;
+        }
+    }
+}
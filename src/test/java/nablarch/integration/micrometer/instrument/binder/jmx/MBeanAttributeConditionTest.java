@@ -4,6 +4,7 @@ import org.junit.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 /**
  * {@link MBeanAttributeCondition}の単体テスト。
@@ -18,4 +19,20 @@ public class MBeanAttributeConditionTest {
         assertThat(sut.getObjectName(), is("objectName"));
         assertThat(sut.getAttribute(), is("attribute"));
     }
+
+    @Test
+    public void testGettersWithPath() {
+        MBeanAttributeCondition sut = new MBeanAttributeCondition("objectName", "attribute", "path");
+
+        assertThat(sut.getObjectName(), is("objectName"));
+        assertThat(sut.getAttribute(), is("attribute"));
+        assertThat(sut.getPath(), is("path"));
+    }
+
+    @Test
+    public void testPathIsNullIfNotSpecified() {
+        MBeanAttributeCondition sut = new MBeanAttributeCondition("objectName", "attribute");
+
+        assertThat(sut.getPath(), is(nullValue()));
+    }
 }
\ No newline at end of file
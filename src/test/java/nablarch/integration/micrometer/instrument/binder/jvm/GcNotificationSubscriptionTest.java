@@ -0,0 +1,104 @@
+package nablarch.integration.micrometer.instrument.binder.jvm;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * {@link GcNotificationSubscription}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class GcNotificationSubscriptionTest {
+    private final MockedStatic<ManagementFactory> managementFactoryMockedStatic = Mockito.mockStatic(ManagementFactory.class);
+    private final MockedStatic<GarbageCollectionNotificationInfo> notificationInfoMockedStatic = Mockito.mockStatic(GarbageCollectionNotificationInfo.class);
+    private final GarbageCollectorMXBean emitterBean = mock(GarbageCollectorMXBean.class, withSettings().extraInterfaces(NotificationEmitter.class));
+    private final GarbageCollectorMXBean nonEmitterBean = mock(GarbageCollectorMXBean.class);
+
+    @Before
+    public void setUp() {
+        managementFactoryMockedStatic.when(ManagementFactory::getGarbageCollectorMXBeans)
+                .thenReturn(List.of(emitterBean, nonEmitterBean));
+    }
+
+    @After
+    public void tearDown() {
+        notificationInfoMockedStatic.close();
+        managementFactoryMockedStatic.close();
+    }
+
+    @Test
+    public void testIsAvailable() {
+        assertThat(GcNotificationSubscription.isAvailable(), is(true));
+    }
+
+    @Test
+    public void testConsumerReceivesGcNotification() throws Exception {
+        CompositeData userData = mock(CompositeData.class);
+        GarbageCollectionNotificationInfo info = mock(GarbageCollectionNotificationInfo.class);
+        notificationInfoMockedStatic.when(() -> GarbageCollectionNotificationInfo.from(userData)).thenReturn(info);
+
+        List<GarbageCollectionNotificationInfo> received = new ArrayList<>();
+        GcNotificationSubscription.subscribe(received::add);
+
+        ArgumentCaptor<NotificationListener> listenerCaptor = ArgumentCaptor.forClass(NotificationListener.class);
+        ArgumentCaptor<NotificationFilter> filterCaptor = ArgumentCaptor.forClass(NotificationFilter.class);
+        verify((NotificationEmitter) emitterBean).addNotificationListener(listenerCaptor.capture(), filterCaptor.capture(), isNull());
+
+        Notification gcNotification = new Notification(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION, "source", 1L);
+        gcNotification.setUserData(userData);
+        assertThat(filterCaptor.getValue().isNotificationEnabled(gcNotification), is(true));
+        assertThat(filterCaptor.getValue().isNotificationEnabled(new Notification("other", "source", 2L)), is(false));
+
+        listenerCaptor.getValue().handleNotification(gcNotification, null);
+
+        assertThat(received, contains(info));
+    }
+
+    @Test
+    public void testCloseRemovesListener() throws Exception {
+        GcNotificationSubscription sut = GcNotificationSubscription.subscribe(info -> {});
+
+        ArgumentCaptor<NotificationListener> listenerCaptor = ArgumentCaptor.forClass(NotificationListener.class);
+        verify((NotificationEmitter) emitterBean).addNotificationListener(listenerCaptor.capture(), any(), isNull());
+
+        sut.close();
+        sut.close();
+
+        verify((NotificationEmitter) emitterBean, times(1)).removeNotificationListener(listenerCaptor.getValue());
+    }
+
+    @Test
+    public void testCloseIgnoresListenerNotFoundException() throws Exception {
+        doThrow(new ListenerNotFoundException()).when((NotificationEmitter) emitterBean).removeNotificationListener(any());
+
+        GcNotificationSubscription sut = GcNotificationSubscription.subscribe(info -> {});
+
+        sut.close();
+    }
+}
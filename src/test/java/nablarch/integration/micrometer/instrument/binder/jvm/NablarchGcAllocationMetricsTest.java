@@ -0,0 +1,304 @@
+package nablarch.integration.micrometer.instrument.binder.jvm;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
+import nablarch.test.support.log.app.OnMemoryLogWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * {@link NablarchGcAllocationMetrics}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class NablarchGcAllocationMetricsTest {
+    private final MockedStatic<ManagementFactory> managementFactoryMockedStatic = Mockito.mockStatic(ManagementFactory.class);
+    private final MockedStatic<GarbageCollectionNotificationInfo> notificationInfoMockedStatic = Mockito.mockStatic(GarbageCollectionNotificationInfo.class);
+    private final GarbageCollectorMXBean garbageCollectorMXBean = mock(GarbageCollectorMXBean.class, withSettings().extraInterfaces(NotificationEmitter.class));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, MemoryPoolMXBean> memoryPools = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        OnMemoryLogWriter.clear();
+    }
+
+    @After
+    public void tearDown() {
+        notificationInfoMockedStatic.close();
+        managementFactoryMockedStatic.close();
+    }
+
+    @Test
+    public void testRecordAllocatedAndPromotedBytes() throws Exception {
+        setUpMemoryPools(List.of("G1 Young Generation", "G1 Old Generation"), "G1 Eden Space", "G1 Survivor Space", "G1 Old Gen");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+        NotificationListener listener = captureListener();
+
+        // Eden: 0 -> 100 を回収、Old: 10 -> 30 に昇格
+        notify(listener, "G1 Young Generation", "end of minor GC",
+                Map.of("G1 Eden Space", usage(100), "G1 Old Gen", usage(10)),
+                Map.of("G1 Eden Space", usage(0), "G1 Old Gen", usage(30)));
+        // Eden: 0 -> 150 を回収、Old: 30 -> 35 に昇格
+        notify(listener, "G1 Young Generation", "end of minor GC",
+                Map.of("G1 Eden Space", usage(150), "G1 Old Gen", usage(30)),
+                Map.of("G1 Eden Space", usage(0), "G1 Old Gen", usage(35)));
+
+        Counter allocated = registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "G1 Young Generation").counter();
+        assertThat(allocated.count(), is(250.0));
+        assertThat(allocated.getId().getBaseUnit(), is("bytes"));
+        assertThat(allocated.getId().getDescription(), is(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_DESCRIPTION));
+
+        Counter promoted = registry.get(NablarchGcAllocationMetrics.DEFAULT_PROMOTED_METRICS_NAME)
+                .tag("memory.manager.name", "G1 Young Generation").counter();
+        assertThat(promoted.count(), is(25.0));
+        assertThat(promoted.getId().getDescription(), is(NablarchGcAllocationMetrics.DEFAULT_PROMOTED_METRICS_DESCRIPTION));
+    }
+
+    @Test
+    public void testAllocationIsCountedFromPreviousSizeAfterGc() throws Exception {
+        setUpMemoryPools(List.of("PS Scavenge", "PS MarkSweep"), "PS Eden Space", "PS Old Gen");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+        NotificationListener listener = captureListener();
+
+        notify(listener, "PS Scavenge", "end of minor GC",
+                Map.of("PS Eden Space", usage(100), "PS Old Gen", usage(0)),
+                Map.of("PS Eden Space", usage(20), "PS Old Gen", usage(0)));
+        notify(listener, "PS MarkSweep", "end of major GC",
+                Map.of("PS Eden Space", usage(70), "PS Old Gen", usage(100)),
+                Map.of("PS Eden Space", usage(0), "PS Old Gen", usage(50)));
+
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "PS Scavenge").counter().count(), is(100.0));
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "PS MarkSweep").counter().count(), is(50.0));
+        // メジャーGCでのOld領域の変化は昇格として数えない
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_PROMOTED_METRICS_NAME)
+                .tag("memory.manager.name", "PS MarkSweep").counter().count(), is(0.0));
+    }
+
+    @Test
+    public void testNonGenerationalHeapCountsOnlyCycles() throws Exception {
+        setUpMemoryPools(List.of("ZGC Cycles", "ZGC Pauses"), "ZHeap");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+        NotificationListener listener = captureListener();
+
+        notify(listener, "ZGC Pauses", "end of GC pause",
+                Map.of("ZHeap", usage(200)), Map.of("ZHeap", usage(200)));
+        notify(listener, "ZGC Cycles", "end of GC cycle",
+                Map.of("ZHeap", usage(200)), Map.of("ZHeap", usage(80)));
+        notify(listener, "ZGC Cycles", "end of GC cycle",
+                Map.of("ZHeap", usage(300)), Map.of("ZHeap", usage(100)));
+
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "ZGC Cycles").counter().count(), is(420.0));
+        assertThat(registry.find(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "ZGC Pauses").counter(), is(nullValue()));
+        assertThat(registry.find(NablarchGcAllocationMetrics.DEFAULT_PROMOTED_METRICS_NAME).counter(), is(nullValue()));
+    }
+
+    @Test
+    public void testAllocationIsCountedFromUsageAtBind() throws Exception {
+        setUpMemoryPools(List.of("PS Scavenge", "PS MarkSweep"), "PS Eden Space", "PS Old Gen");
+        when(memoryPools.get("PS Eden Space").getUsage()).thenReturn(usage(40));
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+
+        notify(captureListener(), "PS Scavenge", "end of minor GC",
+                Map.of("PS Eden Space", usage(100), "PS Old Gen", usage(0)),
+                Map.of("PS Eden Space", usage(0), "PS Old Gen", usage(0)));
+
+        // バインドする前に割り当てられた40バイトは数えない
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "PS Scavenge").counter().count(), is(60.0));
+    }
+
+    @Test
+    public void testCountersAreRegisteredAtBind() {
+        setUpMemoryPools(List.of("G1 Young Generation", "G1 Old Generation"), "G1 Eden Space", "G1 Old Gen");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+
+        for (String gcName : List.of("G1 Young Generation", "G1 Old Generation")) {
+            assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                    .tag("memory.manager.name", gcName).counter().count(), is(0.0));
+            assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_PROMOTED_METRICS_NAME)
+                    .tag("memory.manager.name", gcName).counter().count(), is(0.0));
+        }
+    }
+
+    @Test
+    public void testGenerationalZgc() throws Exception {
+        setUpMemoryPools(List.of("ZGC Minor Cycles", "ZGC Minor Pauses", "ZGC Major Cycles", "ZGC Major Pauses"),
+                "ZGC Young Generation", "ZGC Old Generation");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+        NotificationListener listener = captureListener();
+
+        notify(listener, "ZGC Minor Pauses", "end of GC pause",
+                Map.of("ZGC Young Generation", usage(100), "ZGC Old Generation", usage(10)),
+                Map.of("ZGC Young Generation", usage(100), "ZGC Old Generation", usage(10)));
+        notify(listener, "ZGC Minor Cycles", "end of GC cycle",
+                Map.of("ZGC Young Generation", usage(100), "ZGC Old Generation", usage(10)),
+                Map.of("ZGC Young Generation", usage(20), "ZGC Old Generation", usage(40)));
+        notify(listener, "ZGC Major Cycles", "end of GC cycle",
+                Map.of("ZGC Young Generation", usage(70), "ZGC Old Generation", usage(40)),
+                Map.of("ZGC Young Generation", usage(0), "ZGC Old Generation", usage(60)));
+
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "ZGC Minor Cycles").counter().count(), is(100.0));
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "ZGC Major Cycles").counter().count(), is(50.0));
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_PROMOTED_METRICS_NAME)
+                .tag("memory.manager.name", "ZGC Minor Cycles").counter().count(), is(30.0));
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_PROMOTED_METRICS_NAME)
+                .tag("memory.manager.name", "ZGC Major Cycles").counter().count(), is(0.0));
+        assertThat(registry.find(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "ZGC Minor Pauses").counter(), is(nullValue()));
+    }
+
+    @Test
+    public void testSingleUnknownHeapPoolIsTreatedAsNonGenerational() throws Exception {
+        setUpMemoryPools(List.of("Some GC"), "Some Heap");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+
+        notify(captureListener(), "Some GC", "end of major GC",
+                Map.of("Some Heap", usage(30)), Map.of("Some Heap", usage(30)));
+
+        assertThat(registry.get(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME)
+                .tag("memory.manager.name", "Some GC").counter().count(), is(30.0));
+        assertThat(registry.find(NablarchGcAllocationMetrics.DEFAULT_PROMOTED_METRICS_NAME).counter(), is(nullValue()));
+    }
+
+    @Test
+    public void testWarnOnceIfMemoryPoolIsNotFound() throws Exception {
+        setUpMemoryPools(List.of("Unknown"), "Unknown Young", "Unknown Old");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+        sut.bindTo(new SimpleMeterRegistry());
+
+        verify((NotificationEmitter) garbageCollectorMXBean, never()).addNotificationListener(any(), any(), any());
+        assertThat(registry.find(NablarchGcAllocationMetrics.DEFAULT_ALLOCATED_METRICS_NAME).counter(), is(nullValue()));
+
+        String expected = "WARN ROOT Memory pool to count allocated bytes is not found. GC allocation metrics are not recorded. heapPools=[Unknown Young, Unknown Old]";
+        OnMemoryLogWriter.assertLogContains("writer.appLog", expected);
+        long count = OnMemoryLogWriter.getMessages("writer.appLog").stream().filter(message -> message.contains(expected)).count();
+        assertThat(count, is(1L));
+    }
+
+    @Test
+    public void testMetricsMetaData() throws Exception {
+        setUpMemoryPools(List.of("Copy", "MarkSweepCompact"), "Eden Space", "Tenured Gen");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics(
+                new MetricsMetaData("test.allocated", "Allocated", List.of(Tag.of("foo", "FOO"))),
+                new MetricsMetaData("test.promoted", "Promoted", List.of(Tag.of("bar", "BAR"))));
+        sut.bindTo(registry);
+
+        notify(captureListener(), "Copy", "end of minor GC",
+                Map.of("Eden Space", usage(10), "Tenured Gen", usage(0)),
+                Map.of("Eden Space", usage(0), "Tenured Gen", usage(3)));
+
+        assertThat(registry.get("test.allocated").tag("foo", "FOO").tag("memory.manager.name", "Copy").counter().count(), is(10.0));
+        assertThat(registry.get("test.promoted").tag("bar", "BAR").tag("memory.manager.name", "Copy").counter().count(), is(3.0));
+    }
+
+    @Test
+    public void testCloseRemovesListener() throws Exception {
+        setUpMemoryPools(List.of("G1 Young Generation", "G1 Old Generation"), "G1 Eden Space", "G1 Old Gen");
+        NablarchGcAllocationMetrics sut = new NablarchGcAllocationMetrics();
+        sut.bindTo(registry);
+        NotificationListener listener = captureListener();
+
+        sut.close();
+
+        verify((NotificationEmitter) garbageCollectorMXBean).removeNotificationListener(listener);
+    }
+
+    private void setUpMemoryPools(List<String> memoryManagerNames, String... heapPoolNames) {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (String name : heapPoolNames) {
+            MemoryPoolMXBean pool = mock(MemoryPoolMXBean.class);
+            when(pool.getName()).thenReturn(name);
+            when(pool.getType()).thenReturn(MemoryType.HEAP);
+            when(pool.getMemoryManagerNames()).thenReturn(memoryManagerNames.toArray(new String[0]));
+            when(pool.getUsage()).thenReturn(usage(0));
+            pools.add(pool);
+            memoryPools.put(name, pool);
+        }
+        MemoryPoolMXBean metaspace = mock(MemoryPoolMXBean.class);
+        when(metaspace.getName()).thenReturn("Metaspace");
+        when(metaspace.getType()).thenReturn(MemoryType.NON_HEAP);
+        pools.add(metaspace);
+
+        managementFactoryMockedStatic.when(ManagementFactory::getMemoryPoolMXBeans).thenReturn(pools);
+        managementFactoryMockedStatic.when(ManagementFactory::getGarbageCollectorMXBeans)
+                .thenReturn(List.of(garbageCollectorMXBean));
+    }
+
+    private NotificationListener captureListener() throws Exception {
+        ArgumentCaptor<NotificationListener> captor = ArgumentCaptor.forClass(NotificationListener.class);
+        verify((NotificationEmitter) garbageCollectorMXBean).addNotificationListener(captor.capture(), any(), isNull());
+        return captor.getValue();
+    }
+
+    private MemoryUsage usage(long used) {
+        return new MemoryUsage(0L, used, Math.max(used, 1000L), -1L);
+    }
+
+    private void notify(NotificationListener listener, String gcName, String gcAction,
+                        Map<String, MemoryUsage> before, Map<String, MemoryUsage> after) {
+        GcInfo gcInfo = mock(GcInfo.class);
+        when(gcInfo.getMemoryUsageBeforeGc()).thenReturn(before);
+        when(gcInfo.getMemoryUsageAfterGc()).thenReturn(after);
+        GarbageCollectionNotificationInfo info = mock(GarbageCollectionNotificationInfo.class);
+        when(info.getGcName()).thenReturn(gcName);
+        when(info.getGcAction()).thenReturn(gcAction);
+        when(info.getGcCause()).thenReturn("Allocation Failure");
+        when(info.getGcInfo()).thenReturn(gcInfo);
+
+        CompositeData userData = mock(CompositeData.class);
+        notificationInfoMockedStatic.when(() -> GarbageCollectionNotificationInfo.from(userData)).thenReturn(info);
+
+        Notification notification = new Notification(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION, "source", 1L);
+        notification.setUserData(userData);
+        listener.handleNotification(notification, null);
+    }
+}
@@ -0,0 +1,176 @@
+package nablarch.integration.micrometer.instrument.binder.jvm;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * {@link NablarchGcPauseMetrics}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class NablarchGcPauseMetricsTest {
+    private final MockedStatic<ManagementFactory> managementFactoryMockedStatic = Mockito.mockStatic(ManagementFactory.class);
+    private final MockedStatic<GarbageCollectionNotificationInfo> notificationInfoMockedStatic = Mockito.mockStatic(GarbageCollectionNotificationInfo.class);
+    private final GarbageCollectorMXBean garbageCollectorMXBean = mock(GarbageCollectorMXBean.class, withSettings().extraInterfaces(NotificationEmitter.class));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Before
+    public void setUp() {
+        managementFactoryMockedStatic.when(ManagementFactory::getGarbageCollectorMXBeans)
+                .thenReturn(List.of(garbageCollectorMXBean));
+    }
+
+    @After
+    public void tearDown() {
+        notificationInfoMockedStatic.close();
+        managementFactoryMockedStatic.close();
+    }
+
+    @Test
+    public void testRecordPauseDurationPerCollectorAndCause() throws Exception {
+        NablarchGcPauseMetrics sut = new NablarchGcPauseMetrics();
+        sut.bindTo(registry);
+
+        NotificationListener listener = captureListener();
+        notify(listener, "G1 Young Generation", "end of minor GC", "G1 Evacuation Pause", 12L);
+        notify(listener, "G1 Young Generation", "end of minor GC", "G1 Evacuation Pause", 8L);
+        notify(listener, "G1 Old Generation", "end of major GC", "System.gc()", 30L);
+
+        Timer young = registry.get(NablarchGcPauseMetrics.DEFAULT_METRICS_NAME)
+                .tag("memory.manager.name", "G1 Young Generation")
+                .tag("gc.cause", "G1 Evacuation Pause")
+                .tag("gc.action", "end of minor GC")
+                .timer();
+        assertThat(young.count(), is(2L));
+        assertThat(young.totalTime(TimeUnit.MILLISECONDS), is(20.0));
+        assertThat(young.getId().getDescription(), is(NablarchGcPauseMetrics.DEFAULT_METRICS_DESCRIPTION));
+
+        Timer old = registry.get(NablarchGcPauseMetrics.DEFAULT_METRICS_NAME)
+                .tag("memory.manager.name", "G1 Old Generation")
+                .tag("gc.cause", "System.gc()")
+                .tag("gc.action", "end of major GC")
+                .timer();
+        assertThat(old.count(), is(1L));
+    }
+
+    @Test
+    public void testTimerIsRegisteredAgainIfRemovedFromRegistry() throws Exception {
+        NablarchGcPauseMetrics sut = new NablarchGcPauseMetrics();
+        sut.bindTo(registry);
+
+        NotificationListener listener = captureListener();
+        notify(listener, "G1 Young Generation", "end of minor GC", "G1 Evacuation Pause", 12L);
+        Timer removed = registry.get(NablarchGcPauseMetrics.DEFAULT_METRICS_NAME).timer();
+        registry.remove(removed);
+
+        notify(listener, "G1 Young Generation", "end of minor GC", "G1 Evacuation Pause", 8L);
+
+        Timer timer = registry.get(NablarchGcPauseMetrics.DEFAULT_METRICS_NAME).timer();
+        assertThat(timer, is(not(sameInstance(removed))));
+        assertThat(timer.count(), is(1L));
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS), is(8.0));
+    }
+
+    @Test
+    public void testConcurrentCycleIsNotRecorded() throws Exception {
+        NablarchGcPauseMetrics sut = new NablarchGcPauseMetrics();
+        sut.bindTo(registry);
+
+        NotificationListener listener = captureListener();
+        notify(listener, "ZGC Cycles", "end of GC cycle", "Allocation Rate", 70L);
+        notify(listener, "Shenandoah Cycles", "end of GC cycle", "Allocation Rate", 70L);
+        notify(listener, "G1 Concurrent GC", "end of concurrent GC pause", "G1 Concurrent", 5L);
+        notify(listener, "ZGC Pauses", "end of GC pause", "Allocation Rate", 1L);
+
+        assertThat(registry.find(NablarchGcPauseMetrics.DEFAULT_METRICS_NAME).tag("memory.manager.name", "ZGC Cycles").timer(), is(nullValue()));
+        assertThat(registry.find(NablarchGcPauseMetrics.DEFAULT_METRICS_NAME).tag("memory.manager.name", "Shenandoah Cycles").timer(), is(nullValue()));
+        assertThat(registry.find(NablarchGcPauseMetrics.DEFAULT_METRICS_NAME).tag("memory.manager.name", "G1 Concurrent GC").timer(), is(nullValue()));
+        assertThat(registry.get(NablarchGcPauseMetrics.DEFAULT_METRICS_NAME).tag("memory.manager.name", "ZGC Pauses").timer().count(), is(1L));
+    }
+
+    @Test
+    public void testServiceLevelObjectivesAndMetaData() throws Exception {
+        NablarchGcPauseMetrics sut = new NablarchGcPauseMetrics(
+                new MetricsMetaData("test.gc.pause", "Test description", List.of(Tag.of("foo", "FOO"))));
+        sut.setServiceLevelObjectives(List.of("10", "100"));
+        sut.bindTo(registry);
+
+        notify(captureListener(), "PS Scavenge", "end of minor GC", "Allocation Failure", 50L);
+
+        Timer timer = registry.get("test.gc.pause").tag("foo", "FOO").timer();
+        assertThat(timer.getId().getDescription(), is("Test description"));
+
+        CountAtBucket[] buckets = timer.takeSnapshot().histogramCounts();
+        assertThat(buckets.length, is(2));
+        assertThat(buckets[0].bucket(TimeUnit.MILLISECONDS), is(10.0));
+        assertThat(buckets[0].count(), is(0.0));
+        assertThat(buckets[1].bucket(TimeUnit.MILLISECONDS), is(100.0));
+        assertThat(buckets[1].count(), is(1.0));
+    }
+
+    @Test
+    public void testCloseRemovesListener() throws Exception {
+        NablarchGcPauseMetrics sut = new NablarchGcPauseMetrics();
+        sut.bindTo(registry);
+        NotificationListener listener = captureListener();
+
+        sut.close();
+
+        verify((NotificationEmitter) garbageCollectorMXBean).removeNotificationListener(listener);
+    }
+
+    private NotificationListener captureListener() throws Exception {
+        ArgumentCaptor<NotificationListener> captor = ArgumentCaptor.forClass(NotificationListener.class);
+        verify((NotificationEmitter) garbageCollectorMXBean).addNotificationListener(captor.capture(), any(), isNull());
+        return captor.getValue();
+    }
+
+    private void notify(NotificationListener listener, String gcName, String gcAction, String gcCause, long duration) {
+        GcInfo gcInfo = mock(GcInfo.class);
+        when(gcInfo.getDuration()).thenReturn(duration);
+        GarbageCollectionNotificationInfo info = mock(GarbageCollectionNotificationInfo.class);
+        when(info.getGcName()).thenReturn(gcName);
+        when(info.getGcAction()).thenReturn(gcAction);
+        when(info.getGcCause()).thenReturn(gcCause);
+        when(info.getGcInfo()).thenReturn(gcInfo);
+
+        CompositeData userData = mock(CompositeData.class);
+        notificationInfoMockedStatic.when(() -> GarbageCollectionNotificationInfo.from(userData)).thenReturn(info);
+
+        Notification notification = new Notification(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION, "source", 1L);
+        notification.setUserData(userData);
+        listener.handleNotification(notification, null);
+    }
+}
@@ -0,0 +1,25 @@
+package nablarch.integration.micrometer.instrument.binder.logging;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * {@link LogCountKey}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class LogCountKeyTest {
+
+    @Test
+    public void testEquals() {
+        LogCountKey key = new LogCountKey("foo", "IllegalStateException", "MSG0001");
+
+        assertThat(key, is(new LogCountKey("foo", "IllegalStateException", "MSG0001")));
+        assertThat(key.hashCode(), is(new LogCountKey("foo", "IllegalStateException", "MSG0001").hashCode()));
+        assertThat(key, is(not(new LogCountKey("bar", "IllegalStateException", "MSG0001"))));
+        assertThat(key, is(not(new LogCountKey("foo", null, "MSG0001"))));
+        assertThat(key, is(not(new LogCountKey("foo", "IllegalStateException", null))));
+    }
+}
@@ -1,6 +1,7 @@
 package nablarch.integration.micrometer.instrument.binder.logging;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
@@ -12,7 +13,11 @@ import nablarch.integration.micrometer.instrument.binder.MetricsMetaData;
 import org.junit.After;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -210,6 +215,296 @@ public class LogCountMetricsTest {
         assertThat(findCounter(barWarnContext).count(), is(1.0));
     }
 
+    @Test
+    public void testCounterIsReusedForSameLevelAndRuntimeLogger() {
+        sut.bindTo(registry);
+
+        publisher.write(WARN_LOG_CONTEXT);
+        Counter counter = findCounter(WARN_LOG_CONTEXT);
+        publisher.write(WARN_LOG_CONTEXT);
+
+        assertThat(findCounter(WARN_LOG_CONTEXT), is(sameInstance(counter)));
+        assertThat(counter.count(), is(2.0));
+    }
+
+    @Test
+    public void testCountAgainAfterCounterIsRemoved() {
+        sut.bindTo(registry);
+
+        publisher.write(WARN_LOG_CONTEXT);
+        registry.remove(findCounter(WARN_LOG_CONTEXT));
+        publisher.write(WARN_LOG_CONTEXT);
+
+        assertThat(findCounter(WARN_LOG_CONTEXT).count(), is(1.0));
+    }
+
+    @Test
+    public void testStripedCounter() {
+        sut.setStripedCounterEnabled(true);
+        sut.bindTo(registry);
+
+        publisher.write(INFO_LOG_CONTEXT);
+        publisher.write(WARN_LOG_CONTEXT);
+        publisher.write(ERROR_LOG_CONTEXT);
+        publisher.write(ERROR_LOG_CONTEXT);
+
+        assertThat(findFunctionCounter(INFO_LOG_CONTEXT), is(nullValue()));
+        assertThat(findFunctionCounter(WARN_LOG_CONTEXT).count(), is(1.0));
+        assertThat(findFunctionCounter(ERROR_LOG_CONTEXT).count(), is(2.0));
+        assertThat(findFunctionCounter(ERROR_LOG_CONTEXT).getId().getDescription(), is(LogCountMetrics.DEFAULT_METRICS_DESCRIPTION));
+    }
+
+    @Test
+    public void testStripedCounterWithMultipleThreads() throws Exception {
+        sut.setStripedCounterEnabled(true);
+        sut.bindTo(registry);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    publisher.write(WARN_LOG_CONTEXT);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(findFunctionCounter(WARN_LOG_CONTEXT).count(), is(4000.0));
+    }
+
+    @Test
+    public void testStripedCounterClose() {
+        sut.setStripedCounterEnabled(true);
+        sut.bindTo(registry);
+
+        publisher.write(WARN_LOG_CONTEXT);
+
+        sut.close();
+
+        publisher.write(WARN_LOG_CONTEXT);
+
+        assertThat(findFunctionCounter(WARN_LOG_CONTEXT).count(), is(1.0));
+    }
+
+    @Test
+    public void testAsync() {
+        sut.setAsyncEnabled(true);
+        sut.bindTo(registry);
+
+        publisher.write(INFO_LOG_CONTEXT);
+        publisher.write(WARN_LOG_CONTEXT);
+        publisher.write(ERROR_LOG_CONTEXT);
+        publisher.write(ERROR_LOG_CONTEXT);
+
+        sut.close();
+
+        assertThat(findCounter(INFO_LOG_CONTEXT), is(nullValue()));
+        assertThat(findCounter(WARN_LOG_CONTEXT).count(), is(1.0));
+        assertThat(findCounter(ERROR_LOG_CONTEXT).count(), is(2.0));
+        assertThat(registry.find(LogCountMetrics.DEFAULT_METRICS_NAME + LogCountMetrics.DROPPED_METRICS_NAME_SUFFIX).counter().count(), is(0.0));
+    }
+
+    @Test
+    public void testAsyncStopsAggregatorThreadOnClose() {
+        sut.setAsyncEnabled(true);
+        sut.bindTo(registry);
+
+        sut.close();
+
+        boolean aggregatorThreadAlive = Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals(AsyncLogCountAggregator.THREAD_NAME));
+        assertThat(aggregatorThreadAlive, is(false));
+    }
+
+    @Test
+    public void testAsyncStopsAllAggregatorThreadsIfBoundTwice() {
+        SimpleMeterRegistry anotherRegistry = new SimpleMeterRegistry();
+        sut.setAsyncEnabled(true);
+        sut.bindTo(registry);
+        sut.bindTo(anotherRegistry);
+
+        publisher.write(WARN_LOG_CONTEXT);
+
+        sut.close();
+
+        assertThat(findCounter(WARN_LOG_CONTEXT).count(), is(1.0));
+        assertThat(anotherRegistry.find(LogCountMetrics.DEFAULT_METRICS_NAME)
+                .tag(LogCountMetrics.TAG_NAME_RUNTIME_LOGGER, WARN_LOG_CONTEXT.getRuntimeLoggerName())
+                .counter().count(), is(1.0));
+        assertThat(findAggregatorThread(), is(nullValue()));
+
+        publisher.write(WARN_LOG_CONTEXT);
+        assertThat(findCounter(WARN_LOG_CONTEXT).count(), is(1.0));
+    }
+
+    @Test
+    public void testAsyncAggregatorThreadWaitsWithoutTimeoutAndIsWokenByEvent() throws Exception {
+        sut.setAsyncEnabled(true);
+        sut.bindTo(registry);
+
+        Thread aggregatorThread = findAggregatorThread();
+        awaitUntil(() -> aggregatorThread.getState() == Thread.State.WAITING);
+
+        publisher.write(WARN_LOG_CONTEXT);
+
+        awaitUntil(() -> findCounter(WARN_LOG_CONTEXT) != null);
+        assertThat(findCounter(WARN_LOG_CONTEXT).count(), is(1.0));
+
+        sut.close();
+    }
+
+    @Test
+    public void testAsyncCountsDroppedEvents() {
+        sut.setAsyncEnabled(true);
+        sut.setAsyncBufferSize(1);
+        sut.bindTo(registry);
+
+        for (int i = 0; i < 10000; i++) {
+            publisher.write(WARN_LOG_CONTEXT);
+        }
+
+        sut.close();
+
+        Counter droppedCounter = registry.find(LogCountMetrics.DEFAULT_METRICS_NAME + LogCountMetrics.DROPPED_METRICS_NAME_SUFFIX).counter();
+        assertThat(droppedCounter.getId().getDescription(), is(LogCountMetrics.DROPPED_METRICS_DESCRIPTION));
+        Counter warnCounter = findCounter(WARN_LOG_CONTEXT);
+        double counted = warnCounter == null ? 0.0 : warnCounter.count();
+        assertThat(counted + droppedCounter.count(), is(10000.0));
+    }
+
+    @Test
+    public void testExceptionTag() {
+        sut.setExceptionTagEnabled(true);
+        sut.bindTo(registry);
+
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "error", new IllegalStateException()));
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "error", new IllegalStateException()));
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "error", null));
+
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_EXCEPTION, "IllegalStateException").count(), is(2.0));
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_EXCEPTION, LogCountMetrics.TAG_VALUE_NONE).count(), is(1.0));
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_EXCEPTION, "IllegalStateException").getId().getTag(LogCountMetrics.TAG_NAME_MESSAGE_ID), is(nullValue()));
+    }
+
+    @Test
+    public void testMaxExceptionTagValues() {
+        sut.setExceptionTagEnabled(true);
+        sut.setMaxExceptionTagValues(1);
+        sut.bindTo(registry);
+
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "error", new IllegalStateException()));
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "error", new IllegalArgumentException()));
+
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_EXCEPTION, "IllegalStateException").count(), is(1.0));
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_EXCEPTION, "OTHER").count(), is(1.0));
+    }
+
+    @Test
+    public void testMessageIdTag() {
+        sut.setMessageIdTagEnabled(true);
+        sut.bindTo(registry);
+
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "fail_code = [MSG0001] an error occurred.", null));
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "fail_code = [MSG0001] another error occurred.", null));
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "no message id", null));
+
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_MESSAGE_ID, "MSG0001").count(), is(2.0));
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_MESSAGE_ID, LogCountMetrics.TAG_VALUE_NONE).count(), is(1.0));
+    }
+
+    @Test
+    public void testMessageWithoutFailCodeDoesNotCreateNewTagValue() {
+        sut.setMessageIdTagEnabled(true);
+        sut.setMaxMessageIdTagValues(1);
+        sut.bindTo(registry);
+
+        for (int i = 0; i < 100; i++) {
+            publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "error " + i + " occurred.", null));
+        }
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "fail_code = [MSG0001] an error occurred.", null));
+
+        assertThat(registry.find(LogCountMetrics.DEFAULT_METRICS_NAME).tag(LogCountMetrics.TAG_NAME_RUNTIME_LOGGER, "foo").counters().size(), is(2));
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_MESSAGE_ID, LogCountMetrics.TAG_VALUE_NONE).count(), is(100.0));
+        // メッセージIDを抽出できなかったメッセージは、タグの値の種類の上限に数えない
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_MESSAGE_ID, "MSG0001").count(), is(1.0));
+    }
+
+    @Test
+    public void testCustomMessageIdPatternAndMaxMessageIdTagValues() {
+        sut.setMessageIdTagEnabled(true);
+        sut.setMessageIdPattern("^\\[(\\w+)\\]");
+        sut.setMaxMessageIdTagValues(1);
+        sut.bindTo(registry);
+
+        publisher.write(new LogContext("TEST", "foo", LogLevel.WARN, "[W001] warning", null));
+        publisher.write(new LogContext("TEST", "foo", LogLevel.WARN, "[W002] warning", null));
+
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_MESSAGE_ID, "W001").count(), is(1.0));
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_MESSAGE_ID, "OTHER").count(), is(1.0));
+    }
+
+    @Test
+    public void testExceptionAndMessageIdTagWithAsync() {
+        sut.setAsyncEnabled(true);
+        sut.setExceptionTagEnabled(true);
+        sut.setMessageIdTagEnabled(true);
+        sut.bindTo(registry);
+
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "fail_code = [MSG0001] error", new IllegalStateException()));
+
+        sut.close();
+
+        Counter counter = registry.find(LogCountMetrics.DEFAULT_METRICS_NAME)
+                .tag(LogCountMetrics.TAG_NAME_RUNTIME_LOGGER, "foo")
+                .tag(LogCountMetrics.TAG_NAME_EXCEPTION, "IllegalStateException")
+                .tag(LogCountMetrics.TAG_NAME_MESSAGE_ID, "MSG0001")
+                .counter();
+        assertThat(counter.count(), is(1.0));
+    }
+
+    @Test
+    public void testMessageIdIsExtractedOnAggregatorThreadWithAsync() {
+        sut.setAsyncEnabled(true);
+        sut.setMessageIdTagEnabled(true);
+        sut.bindTo(registry);
+
+        List<String> threadNames = new ArrayList<>();
+        publisher.write(new LogContext("TEST", "foo", LogLevel.ERROR, "fail_code = [MSG0001] error", null) {
+            @Override
+            public String getMessage() {
+                threadNames.add(Thread.currentThread().getName());
+                return super.getMessage();
+            }
+        });
+
+        sut.close();
+
+        assertThat(threadNames, contains(AsyncLogCountAggregator.THREAD_NAME));
+        assertThat(findCounter("foo", LogCountMetrics.TAG_NAME_MESSAGE_ID, "MSG0001").count(), is(1.0));
+    }
+
+    private static Thread findAggregatorThread() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals(AsyncLogCountAggregator.THREAD_NAME))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (deadline < System.nanoTime()) {
+                throw new AssertionError("condition was not satisfied in time.");
+            }
+            Thread.sleep(1);
+        }
+    }
+
     private static class MockLogListener implements LogListener {
         private int count;
 
@@ -221,6 +516,7 @@ public class LogCountMetricsTest {
 
     @After
     public void tearDown() {
+        sut.close();
         LogPublisher.removeAllListeners();
     }
 
@@ -251,4 +547,33 @@ public class LogCountMetricsTest {
                 .tag(LogCountMetrics.TAG_NAME_LEVEL, logContext.getLevel().name())
                 .counter();
     }
+
+    /**
+     * 指定された実行時ロガー名とタグで {@link Counter} を、デフォルトのメトリクス名で検索する。
+     * @param runtimeLoggerName 実行時ロガー名
+     * @param tagName タグ名
+     * @param tagValue タグの値
+     * @return 該当する {@link Counter}
+     */
+    private Counter findCounter(String runtimeLoggerName, String tagName, String tagValue) {
+        return registry.find(LogCountMetrics.DEFAULT_METRICS_NAME)
+                .tag(LogCountMetrics.TAG_NAME_RUNTIME_LOGGER, runtimeLoggerName)
+                .tag(tagName, tagValue)
+                .counter();
+    }
+
+    /**
+     * 指定されたログコンテキストの出力をカウントした {@link FunctionCounter} を、デフォルトのメトリクス名で検索する。
+     * <p>
+     * 該当する {@link FunctionCounter} が見つからない場合は {@code null} を返す。
+     * </p>
+     * @param logContext カウント対象のログコンテキスト
+     * @return ログコンテキストの出力をカウントした {@link FunctionCounter}
+     */
+    private FunctionCounter findFunctionCounter(LogContext logContext) {
+        return registry.find(LogCountMetrics.DEFAULT_METRICS_NAME)
+                .tag(LogCountMetrics.TAG_NAME_RUNTIME_LOGGER, logContext.getRuntimeLoggerName())
+                .tag(LogCountMetrics.TAG_NAME_LEVEL, logContext.getLevel().name())
+                .functionCounter();
+    }
 }
\ No newline at end of file
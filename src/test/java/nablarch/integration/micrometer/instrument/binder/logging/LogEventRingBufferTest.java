@@ -0,0 +1,122 @@
+package nablarch.integration.micrometer.instrument.binder.logging;
+
+import nablarch.core.log.basic.LogContext;
+import nablarch.core.log.basic.LogLevel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+/**
+ * {@link LogEventRingBuffer}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class LogEventRingBufferTest {
+
+    @Test
+    public void testCapacityIsRoundedUpToPowerOfTwo() {
+        assertThat(new LogEventRingBuffer(2).capacity(), is(2));
+        assertThat(new LogEventRingBuffer(3).capacity(), is(4));
+        assertThat(new LogEventRingBuffer(8).capacity(), is(8));
+        assertThat(new LogEventRingBuffer(1000).capacity(), is(1024));
+    }
+
+    @Test
+    public void testMinimumCapacityIsTwo() {
+        LogEventRingBuffer sut = new LogEventRingBuffer(1);
+        assertThat(sut.capacity(), is(2));
+
+        assertThat(sut.offer(1L, null), is(true));
+        assertThat(sut.offer(2L, null), is(true));
+        assertThat(sut.offer(3L, null), is(false));
+
+        List<Long> values = new ArrayList<>();
+        assertThat(sut.drain((value, context) -> values.add(value)), is(2));
+        assertThat(values, is(Arrays.asList(1L, 2L)));
+    }
+
+    @Test
+    public void testThrowsExceptionIfCapacityIsNotPositive() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new LogEventRingBuffer(0));
+
+        assertThat(exception.getMessage(), is("capacity must be positive. capacity=0"));
+    }
+
+    @Test
+    public void testDrainInOrder() {
+        LogEventRingBuffer sut = new LogEventRingBuffer(4);
+        sut.offer(1L, null);
+        sut.offer(2L, null);
+        sut.offer(3L, null);
+
+        List<Long> values = new ArrayList<>();
+        assertThat(sut.drain((value, context) -> values.add(value)), is(3));
+
+        assertThat(values, is(Arrays.asList(1L, 2L, 3L)));
+        assertThat(sut.drain((value, context) -> values.add(value)), is(0));
+    }
+
+    @Test
+    public void testDrainWithLogContext() {
+        LogEventRingBuffer sut = new LogEventRingBuffer(4);
+        LogContext logContext = new LogContext("TEST", "foo", LogLevel.ERROR, "error", null);
+        sut.offer(1L, logContext);
+        sut.offer(2L, null);
+
+        List<LogContext> contexts = new ArrayList<>();
+        sut.drain((value, context) -> contexts.add(context));
+
+        assertThat(contexts.size(), is(2));
+        assertThat(contexts.get(0), is(sameInstance(logContext)));
+        assertThat(contexts.get(1), is(nullValue()));
+    }
+
+    @Test
+    public void testOfferReturnsFalseIfFull() {
+        LogEventRingBuffer sut = new LogEventRingBuffer(2);
+
+        assertThat(sut.offer(1L, null), is(true));
+        assertThat(sut.offer(2L, null), is(true));
+        assertThat(sut.offer(3L, null), is(false));
+
+        List<Long> values = new ArrayList<>();
+        sut.drain((value, context) -> values.add(value));
+        assertThat(values, is(Arrays.asList(1L, 2L)));
+
+        assertThat(sut.offer(4L, null), is(true));
+        sut.drain((value, context) -> values.add(value));
+        assertThat(values, is(Arrays.asList(1L, 2L, 4L)));
+    }
+
+    @Test
+    public void testMultipleProducers() throws Exception {
+        LogEventRingBuffer sut = new LogEventRingBuffer(1 << 16);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            long base = i * 10000L;
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    sut.offer(base + j, null);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] sum = {0};
+        assertThat(sut.drain((value, context) -> sum[0] += value), is(40000));
+        assertThat(sum[0], is(39999L * 40000L / 2));
+    }
+}
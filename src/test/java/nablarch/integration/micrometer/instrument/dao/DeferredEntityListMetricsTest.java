@@ -0,0 +1,100 @@
+package nablarch.integration.micrometer.instrument.dao;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nablarch.common.dao.DeferredEntityList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link DeferredEntityListMetrics}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class DeferredEntityListMetricsTest {
+    private final MockClock clock = new MockClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+    private final Timer firstRowTimer = meterRegistry.timer("first.row");
+    private final Timer iterationTimer = meterRegistry.timer("iteration");
+    private final DistributionSummary rowCount = meterRegistry.summary("row.count");
+
+    @SuppressWarnings("unchecked")
+    private final DeferredEntityList<String> delegate = mock(DeferredEntityList.class);
+
+    private DeferredEntityListMetrics<String> sut;
+
+    @Before
+    public void setUp() {
+        when(delegate.iterator()).thenReturn(Arrays.asList("a", "b", "c").iterator());
+        sut = new DeferredEntityListMetrics<>(delegate, clock, firstRowTimer, iterationTimer, rowCount);
+    }
+
+    @Test
+    public void testRecordOnClose() throws Exception {
+        Iterator<String> iterator = sut.iterator();
+        clock.add(Duration.ofMillis(10));
+        assertThat(iterator.next(), is("a"));
+        clock.add(Duration.ofMillis(5));
+        assertThat(iterator.next(), is("b"));
+        assertThat(iterator.next(), is("c"));
+        assertThat(iterator.hasNext(), is(false));
+        clock.add(Duration.ofMillis(5));
+
+        assertThat(iterationTimer.count(), is(0L));
+
+        sut.close();
+
+        verify(delegate).close();
+        assertThat(firstRowTimer.count(), is(1L));
+        assertThat(firstRowTimer.totalTime(TimeUnit.MILLISECONDS), is(10.0));
+        assertThat(iterationTimer.count(), is(1L));
+        assertThat(iterationTimer.totalTime(TimeUnit.MILLISECONDS), is(20.0));
+        assertThat(rowCount.count(), is(1L));
+        assertThat(rowCount.totalAmount(), is(3.0));
+    }
+
+    @Test
+    public void testRecordOnlyOnceIfClosedTwice() throws Exception {
+        sut.iterator().next();
+
+        sut.close();
+        sut.close();
+
+        assertThat(iterationTimer.count(), is(1L));
+        assertThat(rowCount.count(), is(1L));
+    }
+
+    @Test
+    public void testFirstRowTimeIsNotRecordedIfNoRows() throws Exception {
+        when(delegate.iterator()).thenReturn(Arrays.<String>asList().iterator());
+
+        sut.iterator().hasNext();
+        sut.close();
+
+        assertThat(firstRowTimer.count(), is(0L));
+        assertThat(iterationTimer.count(), is(1L));
+        assertThat(rowCount.totalAmount(), is(0.0));
+    }
+
+    @Test
+    public void testNothingIsRecordedIfNotIterated() throws Exception {
+        sut.close();
+
+        verify(delegate).close();
+        assertThat(iterationTimer.count(), is(0L));
+        assertThat(rowCount.count(), is(0L));
+    }
+}
@@ -13,6 +13,8 @@ import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThrows;
 
@@ -39,6 +41,67 @@ public class SqlTimeMetricsDaoContextFactoryTest {
         assertThat(daoContext.getMeterRegistry(), is(sameInstance(meterRegistry)));
     }
 
+    @Test
+    public void testCreatedDaoContextsShareMeterCache() {
+        SqlTimeMetricsDaoContext first = (SqlTimeMetricsDaoContext) sut.create();
+        SqlTimeMetricsDaoContext second = (SqlTimeMetricsDaoContext) sut.create();
+
+        assertThat(first.getTimerCache(), is(notNullValue()));
+        assertThat(second.getTimerCache(), is(sameInstance(first.getTimerCache())));
+        assertThat(first.getSummaryCache(), is(notNullValue()));
+        assertThat(second.getSummaryCache(), is(sameInstance(first.getSummaryCache())));
+
+        first.findById(Object.class, 1);
+        second.findById(Object.class, 2);
+
+        assertThat(first.getTimerCache().size(), is(1));
+        assertThat(first.getSummaryCache().size(), is(0));
+        assertThat(meterRegistry.get(SqlTimeMetricsDaoContext.DEFAULT_METRICS_NAME).timer().count(), is(2L));
+    }
+
+    @Test
+    public void testResetMeterCacheIfSettingChanged() {
+        SqlTimeMetricsDaoContext first = (SqlTimeMetricsDaoContext) sut.create();
+
+        sut.setMaxCacheSize(10);
+        SqlTimeMetricsDaoContext second = (SqlTimeMetricsDaoContext) sut.create();
+
+        assertThat(second.getTimerCache(), is(not(sameInstance(first.getTimerCache()))));
+    }
+
+    @Test
+    public void testSetBatchSizeMetricsEnabled() {
+        sut.setBatchSizeMetricsEnabled(true);
+
+        SqlTimeMetricsDaoContext daoContext = (SqlTimeMetricsDaoContext) sut.create();
+        daoContext.batchInsert(List.of(new Object()));
+
+        assertThat(meterRegistry.get("sql.batch.size").summary().totalAmount(), is(1.0));
+    }
+
+    @Test
+    public void testCreatedDaoContextsShareSqlIdTagLimiter() {
+        sut.setResultSizeMetricsEnabled(true);
+        sut.setMaxResultSizeSqlIds(1);
+
+        sut.create().countBySqlFile(Object.class, "first-sql-id", null);
+        sut.create().countBySqlFile(Object.class, "second-sql-id", null);
+
+        assertThat(meterRegistry.get("sql.result.size").tag("sql.id", "first-sql-id").summary().count(), is(1L));
+        assertThat(meterRegistry.get("sql.result.size").tag("sql.id", "OTHER").summary().count(), is(1L));
+    }
+
+    @Test
+    public void testSetMaxCacheSize() {
+        sut.setMaxCacheSize(0);
+
+        SqlTimeMetricsDaoContext daoContext = (SqlTimeMetricsDaoContext) sut.create();
+        daoContext.findById(Object.class, 1);
+
+        assertThat(daoContext.getTimerCache().size(), is(0));
+        assertThat(meterRegistry.get(SqlTimeMetricsDaoContext.DEFAULT_METRICS_NAME).timer().count(), is(1L));
+    }
+
     @Test
     public void testThrowsExceptionIfDelegateIsNull() {
         sut.setDelegate(null);
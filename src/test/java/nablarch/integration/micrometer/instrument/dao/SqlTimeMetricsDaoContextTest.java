@@ -1,12 +1,16 @@
 package nablarch.integration.micrometer.instrument.dao;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MockClock;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleConfig;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import nablarch.common.dao.DaoContext;
+import nablarch.common.dao.DeferredEntityList;
 import nablarch.common.dao.EntityList;
+import nablarch.integration.micrometer.instrument.TagValueLimiter;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -17,7 +21,9 @@ import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.Mockito.mock;
@@ -102,6 +108,39 @@ public class SqlTimeMetricsDaoContextTest {
         assertThat(timer.getId().getDescription(), is("Test metrics."));
     }
 
+    @Test
+    public void testBatchSizeMetrics() {
+        sut.setBatchSizeMetricsEnabled(true);
+
+        sut.batchInsert(MOCK_ENTITY_LIST);
+
+        Timer timer = meterRegistry.find(SqlTimeMetricsDaoContext.DEFAULT_METRICS_NAME).timer();
+        assertTimerRecord(timer, SqlTimeMetricsDaoContext.TAG_VALUE_NO_SQL_ID, "batchInsert");
+
+        DistributionSummary batchSize = meterRegistry.find(SqlTimeMetricsDaoContext.BATCH_SIZE_METRICS_NAME).summary();
+        assertThat(batchSize.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_METHOD_NAME), is("batchInsert"));
+        assertThat(batchSize.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_ENTITY_NAME), is(MockEntity.class.getName()));
+        assertThat(batchSize.getId().getDescription(), is(SqlTimeMetricsDaoContext.BATCH_SIZE_METRICS_DESCRIPTION));
+        assertThat(batchSize.count(), is(1L));
+        assertThat(batchSize.totalAmount(), is(3.0));
+
+        Timer rowTime = meterRegistry.find(SqlTimeMetricsDaoContext.BATCH_ROW_TIME_METRICS_NAME).timer();
+        assertThat(rowTime.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_METHOD_NAME), is("batchInsert"));
+        assertThat(rowTime.getId().getDescription(), is(SqlTimeMetricsDaoContext.BATCH_ROW_TIME_METRICS_DESCRIPTION));
+        assertThat(rowTime.count(), is(1L));
+        assertThat(rowTime.totalTime(TimeUnit.NANOSECONDS), is(333.0));
+
+        verify(daoContext).batchInsert(MOCK_ENTITY_LIST);
+    }
+
+    @Test
+    public void testBatchSizeMetricsIsNotRecordedInDefault() {
+        sut.batchInsert(MOCK_ENTITY_LIST);
+
+        assertThat(meterRegistry.find(SqlTimeMetricsDaoContext.BATCH_SIZE_METRICS_NAME).summary(), is(nullValue()));
+        assertThat(meterRegistry.find(SqlTimeMetricsDaoContext.BATCH_ROW_TIME_METRICS_NAME).timer(), is(nullValue()));
+    }
+
     @Test
     public void testBatchInsert() {
         sut.batchInsert(MOCK_ENTITY_LIST);
@@ -202,6 +241,20 @@ public class SqlTimeMetricsDaoContextTest {
         assertTimerRecord(timer, "test-sql-id", "countBySqlFile");
     }
 
+    @Test
+    public void testCountBySqlFileResultSize() {
+        sut.setResultSizeMetricsEnabled(true);
+        when(daoContext.countBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(1234L);
+
+        long returnValue = sut.countBySqlFile(MockEntity.class, "test-sql-id", PARAM);
+
+        assertThat(returnValue, is(1234L));
+
+        DistributionSummary resultSize = meterRegistry.find(SqlTimeMetricsDaoContext.RESULT_SIZE_METRICS_NAME).summary();
+        assertThat(resultSize.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_METHOD_NAME), is("countBySqlFile"));
+        assertThat(resultSize.totalAmount(), is(1234.0));
+    }
+
     @Test
     public void testCountBySqlFileCustomMetricsNameAndDescription() {
         sut.setMetricsName("test.metrics");
@@ -288,6 +341,134 @@ public class SqlTimeMetricsDaoContextTest {
         assertTimerRecord(timer, "test-sql-id", "findAllBySqlFile");
     }
 
+    @Test
+    public void testFindAllBySqlFileResultSize() {
+        sut.setResultSizeMetricsEnabled(true);
+        EntityList<MockEntity> entityList = new EntityList<>(Arrays.asList(new MockEntity(), new MockEntity()));
+        when(daoContext.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(entityList);
+
+        sut.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM);
+
+        DistributionSummary resultSize = meterRegistry.find(SqlTimeMetricsDaoContext.RESULT_SIZE_METRICS_NAME).summary();
+        assertThat(resultSize.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_SQL_ID), is("test-sql-id"));
+        assertThat(resultSize.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_ENTITY_NAME), is(MockEntity.class.getName()));
+        assertThat(resultSize.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_METHOD_NAME), is("findAllBySqlFile"));
+        assertThat(resultSize.getId().getDescription(), is(SqlTimeMetricsDaoContext.RESULT_SIZE_METRICS_DESCRIPTION));
+        assertThat(resultSize.count(), is(1L));
+        assertThat(resultSize.totalAmount(), is(2.0));
+    }
+
+    @Test
+    public void testFindAllBySqlFileResultSizeIsNotRecordedInDefault() {
+        EntityList<MockEntity> entityList = new EntityList<>(Arrays.asList(new MockEntity(), new MockEntity()));
+        when(daoContext.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(entityList);
+
+        sut.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM);
+
+        assertThat(meterRegistry.find(SqlTimeMetricsDaoContext.RESULT_SIZE_METRICS_NAME).summary(), is(nullValue()));
+    }
+
+    @Test
+    public void testFindAllBySqlFileResultSizeIsNotRecordedIfDeferred() {
+        sut.setResultSizeMetricsEnabled(true);
+        @SuppressWarnings("unchecked")
+        DeferredEntityList<MockEntity> entityList = mock(DeferredEntityList.class);
+        when(daoContext.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(entityList);
+
+        sut.defer().findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM);
+
+        assertThat(meterRegistry.find(SqlTimeMetricsDaoContext.RESULT_SIZE_METRICS_NAME).summary(), is(nullValue()));
+    }
+
+    @Test
+    public void testFindAllBySqlFileDeferredIsWrapped() {
+        sut.setDeferredMetricsEnabled(true);
+        @SuppressWarnings("unchecked")
+        DeferredEntityList<MockEntity> entityList = mock(DeferredEntityList.class);
+        when(daoContext.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(entityList);
+
+        EntityList<MockEntity> returnValue = sut.defer().findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM);
+
+        assertThat(returnValue, is(instanceOf(DeferredEntityListMetrics.class)));
+        assertThat(((DeferredEntityListMetrics<MockEntity>) returnValue).getDelegate(), is(sameInstance(entityList)));
+
+        Timer iterationTimer = meterRegistry.find(SqlTimeMetricsDaoContext.DEFERRED_ITERATION_TIME_METRICS_NAME).timer();
+        assertThat(iterationTimer.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_SQL_ID), is("test-sql-id"));
+        assertThat(iterationTimer.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_METHOD_NAME), is("findAllBySqlFile"));
+        assertThat(meterRegistry.find(SqlTimeMetricsDaoContext.DEFERRED_FIRST_ROW_TIME_METRICS_NAME).timer(), is(notNullValue()));
+        assertThat(meterRegistry.find(SqlTimeMetricsDaoContext.DEFERRED_ROW_COUNT_METRICS_NAME).summary(), is(notNullValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDeferredResultCanBeCastToDeferredEntityList() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, new MockClock());
+        SqlTimeMetricsDaoContext sut = new SqlTimeMetricsDaoContext(daoContext, meterRegistry);
+        sut.setDeferredMetricsEnabled(true);
+        DeferredEntityList<MockEntity> entityList = mock(DeferredEntityList.class);
+        when(entityList.iterator()).thenReturn(MOCK_ENTITY_LIST.iterator());
+        when(daoContext.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(entityList);
+
+        int count = 0;
+        try (DeferredEntityList<MockEntity> deferred =
+                     (DeferredEntityList<MockEntity>) sut.defer().findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)) {
+            for (MockEntity ignored : deferred) {
+                count++;
+            }
+        }
+
+        assertThat(count, is(3));
+        verify(entityList).close();
+        assertThat(meterRegistry.find(SqlTimeMetricsDaoContext.DEFERRED_ROW_COUNT_METRICS_NAME).summary().totalAmount(), is(3.0));
+    }
+
+    @Test
+    public void testDeferredSqlIdIsLimited() {
+        TagValueLimiter sqlIdTagLimiter = new TagValueLimiter();
+        sqlIdTagLimiter.setMaxDistinctValues(0);
+        sut.setDeferredMetricsEnabled(true);
+        sut.setSqlIdTagLimiter(sqlIdTagLimiter);
+        @SuppressWarnings("unchecked")
+        DeferredEntityList<MockEntity> entityList = mock(DeferredEntityList.class);
+        when(daoContext.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(entityList);
+
+        sut.defer().findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM);
+
+        Timer iterationTimer = meterRegistry.find(SqlTimeMetricsDaoContext.DEFERRED_ITERATION_TIME_METRICS_NAME).timer();
+        assertThat(iterationTimer.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_SQL_ID), is(TagValueLimiter.OTHER));
+        Timer timer = meterRegistry.find(SqlTimeMetricsDaoContext.DEFAULT_METRICS_NAME).timer();
+        assertThat(timer.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_SQL_ID), is("test-sql-id"));
+    }
+
+    @Test
+    public void testFindAllBySqlFileDeferredIsNotWrappedInDefault() {
+        @SuppressWarnings("unchecked")
+        DeferredEntityList<MockEntity> entityList = mock(DeferredEntityList.class);
+        when(daoContext.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(entityList);
+
+        EntityList<MockEntity> returnValue = sut.defer().findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM);
+
+        assertThat(returnValue, is(sameInstance(entityList)));
+    }
+
+    @Test
+    public void testResultSizeSqlIdIsLimited() {
+        TagValueLimiter sqlIdTagLimiter = new TagValueLimiter();
+        sqlIdTagLimiter.setMaxDistinctValues(0);
+        sut.setResultSizeMetricsEnabled(true);
+        sut.setSqlIdTagLimiter(sqlIdTagLimiter);
+        when(daoContext.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM)).thenReturn(new EntityList<>());
+
+        sut.findAllBySqlFile(MockEntity.class, "test-sql-id", PARAM);
+
+        DistributionSummary resultSize = meterRegistry.find(SqlTimeMetricsDaoContext.RESULT_SIZE_METRICS_NAME).summary();
+        assertThat(resultSize.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_SQL_ID), is(TagValueLimiter.OTHER));
+        assertThat(resultSize.totalAmount(), is(0.0));
+
+        Timer timer = meterRegistry.find(SqlTimeMetricsDaoContext.DEFAULT_METRICS_NAME).timer();
+        assertThat(timer.getId().getTag(SqlTimeMetricsDaoContext.TAG_NAME_SQL_ID), is("test-sql-id"));
+    }
+
     @Test
     public void testFindAllBySqlFileCustomMetricsNameAndDescription() {
         sut.setMetricsName("test.metrics");
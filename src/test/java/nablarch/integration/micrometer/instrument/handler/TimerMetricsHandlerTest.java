@@ -6,6 +6,7 @@ import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.simple.SimpleConfig;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nablarch.fw.ExecutionContext;
 import nablarch.fw.web.servlet.ServletExecutionContext;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,6 +21,8 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -117,6 +120,82 @@ public class TimerMetricsHandlerTest {
         assertThat(id.getTag("buzz"), is("BUZZ"));
     }
 
+    @Test
+    public void testReuseCachedTimerForSameTags() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sut.setMeterRegistry(registry);
+
+        when(context.handleNext(PARAM)).thenReturn(RESULT);
+        when(metricsInfoBuilder.getMetricsName()).thenReturn(METRICS_NAME);
+        when(metricsInfoBuilder.buildTagList(PARAM, context, RESULT, null)).thenReturn(
+                List.of(Tag.of("foo", "FOO")), List.of(Tag.of("foo", "FOO")), List.of(Tag.of("foo", "BAR")));
+
+        sut.handle(PARAM, context);
+        sut.handle(PARAM, context);
+        sut.handle(PARAM, context);
+
+        assertThat(registry.get(METRICS_NAME).tag("foo", "FOO").timer().count(), is(2L));
+        assertThat(registry.get(METRICS_NAME).tag("foo", "BAR").timer().count(), is(1L));
+        // Timerの登録はタグの組み合わせごとに1回だけ行われる
+        verify(metricsInfoBuilder, times(2)).getMetricsName();
+    }
+
+    @Test
+    public void testNotCacheTimerIfMaxCacheSizeIsZero() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sut.setMeterRegistry(registry);
+        sut.setMaxCacheSize(0);
+
+        when(context.handleNext(PARAM)).thenReturn(RESULT);
+        when(metricsInfoBuilder.getMetricsName()).thenReturn(METRICS_NAME);
+        when(metricsInfoBuilder.buildTagList(PARAM, context, RESULT, null)).thenReturn(List.of(Tag.of("foo", "FOO")));
+
+        sut.handle(PARAM, context);
+        sut.handle(PARAM, context);
+
+        assertThat(registry.get(METRICS_NAME).timer().count(), is(2L));
+        verify(metricsInfoBuilder, times(2)).getMetricsName();
+    }
+
+    @Test
+    public void testDiscardCachedTimerIfMeterRegistryIsClosed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sut.setMeterRegistry(registry);
+
+        when(context.handleNext(PARAM)).thenReturn(RESULT);
+        when(metricsInfoBuilder.getMetricsName()).thenReturn(METRICS_NAME);
+        when(metricsInfoBuilder.buildTagList(PARAM, context, RESULT, null)).thenReturn(List.of(Tag.of("foo", "FOO")));
+
+        sut.handle(PARAM, context);
+        registry.close();
+        sut.handle(PARAM, context);
+
+        verify(metricsInfoBuilder, times(2)).getMetricsName();
+    }
+
+    @Test
+    public void testMeasureTimeWithTagValuesBuilder() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        sut.setMeterRegistry(registry);
+        MockTagValuesBuilder tagValuesBuilder = new MockTagValuesBuilder();
+        sut.setHandlerMetricsMetaDataBuilder(tagValuesBuilder);
+
+        when(context.handleNext(PARAM)).thenReturn(RESULT);
+
+        tagValuesBuilder.value = "FOO";
+        sut.handle(PARAM, context);
+        sut.handle(PARAM, context);
+        tagValuesBuilder.value = "BAR";
+        sut.handle(PARAM, context);
+
+        Timer fooTimer = registry.get(METRICS_NAME).tag("foo", "FOO").tag("result", RESULT).timer();
+        assertThat(fooTimer.count(), is(2L));
+        assertThat(fooTimer.getId().getDescription(), is(METRICS_DESCRIPTION));
+        assertThat(registry.get(METRICS_NAME).tag("foo", "BAR").tag("result", RESULT).timer().count(), is(1L));
+        // Timerの登録はタグの値の組み合わせごとに1回だけ行われる
+        assertThat(tagValuesBuilder.metricsNameCount, is(2));
+    }
+
     @Test
     public void testThrowsExceptionIfMetricsInfoBuilderIsNull() {
         sut.setHandlerMetricsMetaDataBuilder(null);
@@ -134,4 +213,39 @@ public class TimerMetricsHandlerTest {
 
         assertThat(exception.getMessage(), is("meterRegistry is not set."));
     }
-}
\ No newline at end of file
+
+    /**
+     * テスト用の{@link HandlerMetricsTagValuesBuilder}。
+     */
+    private static class MockTagValuesBuilder implements HandlerMetricsTagValuesBuilder<String, String> {
+        private String value;
+        private int metricsNameCount;
+
+        @Override
+        public List<String> getTagKeys() {
+            return List.of("foo", "result");
+        }
+
+        @Override
+        public void buildTagValues(String param, ExecutionContext executionContext, String result, Throwable thrownThrowable, String[] tagValues) {
+            tagValues[0] = value;
+            tagValues[1] = result;
+        }
+
+        @Override
+        public String getMetricsName() {
+            metricsNameCount++;
+            return METRICS_NAME;
+        }
+
+        @Override
+        public String getMetricsDescription() {
+            return METRICS_DESCRIPTION;
+        }
+
+        @Override
+        public List<Tag> buildTagList(String param, ExecutionContext executionContext, String result, Throwable thrownThrowable) {
+            throw new AssertionError("buildTagList must not be called.");
+        }
+    }
+}
@@ -10,9 +10,14 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -208,4 +213,154 @@ public class HttpRequestTimeMetricsMetaDataBuilderTest {
 
         assertThat(tagList, hasItem(Tag.of("class", "nablarch.integration.micrometer.instrument.http.TestController$MemberController")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetTagKeys() {
+        assertThat(sut.getTagKeys(), contains("class", "method", "httpMethod", "status", "outcome", "exception"));
+    }
+
+    @Test
+    public void testBuildTagValues() {
+        when(context.getServletResponse()).thenReturn(servletResponse);
+        when(context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_CLASS)).thenReturn(TestController.class);
+        when(context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_METHOD)).thenReturn(TestController.ACTION_METHOD_WITH_ARGS);
+
+        when(request.getMethod()).thenReturn("POST");
+        when(servletResponse.getStatus()).thenReturn(500);
+
+        String[] tagValues = new String[sut.getTagKeys().size()];
+        sut.buildTagValues(request, context, RESULT, new NullPointerException("test"), tagValues);
+
+        assertThat(tagValues, arrayContaining(
+            TestController.class.getName(),
+            "withArgs_int_java.lang.String",
+            "POST",
+            "500",
+            "SERVER_ERROR",
+            "NullPointerException"
+        ));
+    }
+
+    @Test
+    public void testMethodTagValueIsReusedForSameMethod() {
+        when(context.getServletResponse()).thenReturn(servletResponse);
+        when(context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_CLASS)).thenReturn(TestController.class);
+        when(context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_METHOD)).thenReturn(TestController.ACTION_METHOD_WITH_ARGS);
+
+        when(request.getMethod()).thenReturn("GET");
+        when(servletResponse.getStatus()).thenReturn(200);
+
+        String[] first = new String[sut.getTagKeys().size()];
+        sut.buildTagValues(request, context, RESULT, null, first);
+        String[] second = new String[sut.getTagKeys().size()];
+        sut.buildTagValues(request, context, RESULT, null, second);
+
+        assertThat(first[1], is("withArgs_int_java.lang.String"));
+        assertThat(second[1], is(sameInstance(first[1])));
+    }
+
+    @Test
+    public void testExceptionTagIsOtherIfOverMaxExceptionTagValues() {
+        when(context.getServletResponse()).thenReturn(servletResponse);
+        when(request.getMethod()).thenReturn("GET");
+        when(servletResponse.getStatus()).thenReturn(500);
+
+        sut.setMaxExceptionTagValues(1);
+
+        assertThat(sut.buildTagList(request, context, RESULT, new NullPointerException("test")), hasItem(Tag.of("exception", "NullPointerException")));
+        assertThat(sut.buildTagList(request, context, RESULT, new IllegalStateException("test")), hasItem(Tag.of("exception", "OTHER")));
+    }
+
+    @Test
+    public void testExceptionTagIsOtherIfNotInAllowList() {
+        when(context.getServletResponse()).thenReturn(servletResponse);
+        when(request.getMethod()).thenReturn("GET");
+        when(servletResponse.getStatus()).thenReturn(500);
+
+        sut.setExceptionTagAllowList(List.of(NullPointerException.class.getName()));
+
+        assertThat(sut.buildTagList(request, context, RESULT, new NullPointerException("test")), hasItem(Tag.of("exception", "NullPointerException")));
+        assertThat(sut.buildTagList(request, context, RESULT, new IllegalStateException("test")), hasItem(Tag.of("exception", "OTHER")));
+    }
+
+    @Test
+    public void testUriTag() {
+        when(context.getServletResponse()).thenReturn(servletResponse);
+        when(context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_CLASS)).thenReturn(TestController.class);
+        when(context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_METHOD)).thenReturn(TestController.ACTION_METHOD_WITHOUT_ARGS);
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestPath()).thenReturn("/users/123");
+        when(servletResponse.getStatus()).thenReturn(200);
+
+        sut.setUriPatterns(List.of("/users/{id}"));
+
+        assertThat(sut.getTagKeys(), contains("class", "method", "uri", "httpMethod", "status", "outcome", "exception"));
+
+        List<Tag> tagList = sut.buildTagList(request, context, RESULT, null);
+
+        assertThat(tagList, containsInAnyOrder(
+            Tag.of("class", TestController.class.getName()),
+            Tag.of("method", TestController.ACTION_METHOD_WITHOUT_ARGS.getName()),
+            Tag.of("uri", "/users/{id}"),
+            Tag.of("httpMethod", "GET"),
+            Tag.of("status", "200"),
+            Tag.of("outcome", "SUCCESS"),
+            Tag.of("exception", "None")
+        ));
+    }
+
+    @Test
+    public void testUriTagIsUnknownIfNotMatched() {
+        when(context.getServletResponse()).thenReturn(servletResponse);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestPath()).thenReturn("/unknown/path");
+        when(servletResponse.getStatus()).thenReturn(404);
+
+        sut.setUriPatterns(List.of("/users/{id}"));
+
+        assertThat(sut.buildTagList(request, context, RESULT, null), hasItem(Tag.of("uri", "UNKNOWN")));
+    }
+
+    @Test
+    public void testMethodTagDisabled() {
+        when(context.getServletResponse()).thenReturn(servletResponse);
+        when(context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_CLASS)).thenReturn(TestController.class);
+        when(context.getRequestScopedVar(MethodBinding.SCOPE_VAR_NAME_BOUND_METHOD)).thenReturn(TestController.ACTION_METHOD_WITHOUT_ARGS);
+
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getRequestPath()).thenReturn("/users/123");
+        when(servletResponse.getStatus()).thenReturn(200);
+
+        sut.setUriPatterns(List.of("/users/{id}"));
+        sut.setMethodTagEnabled(false);
+
+        assertThat(sut.getTagKeys(), contains("class", "uri", "httpMethod", "status", "outcome", "exception"));
+
+        String[] tagValues = new String[sut.getTagKeys().size()];
+        sut.buildTagValues(request, context, RESULT, null, tagValues);
+
+        assertThat(tagValues, arrayContaining(
+            TestController.class.getName(),
+            "/users/{id}",
+            "GET",
+            "200",
+            "SUCCESS",
+            "None"
+        ));
+        assertThat(sut.buildTagList(request, context, RESULT, null), not(hasItem(Tag.of("method", TestController.ACTION_METHOD_WITHOUT_ARGS.getName()))));
+    }
+
+    @Test
+    public void testTagKeysAreFixedAfterFirstUse() {
+        sut.setUriPatterns(List.of("/users/{id}"));
+        List<String> tagKeys = sut.getTagKeys();
+
+        IllegalStateException uriPatterns = assertThrows(IllegalStateException.class, () -> sut.setUriPatterns(List.of("/projects/{id}")));
+        IllegalStateException methodTag = assertThrows(IllegalStateException.class, () -> sut.setMethodTagEnabled(false));
+
+        assertThat(uriPatterns.getMessage(), is("tagKeys is already fixed."));
+        assertThat(methodTag.getMessage(), is("tagKeys is already fixed."));
+        assertThat(sut.getTagKeys(), sameInstance(tagKeys));
+    }
+}
@@ -0,0 +1,50 @@
+package nablarch.integration.micrometer.instrument.http;
+
+import io.micrometer.core.instrument.Tag;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * {@link HttpStatusTags}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class HttpStatusTagsTest {
+
+    @Test
+    public void testStatusInRange() {
+        assertThat(HttpStatusTags.status(100), is(Tag.of("status", "100")));
+        assertThat(HttpStatusTags.status(200), is(Tag.of("status", "200")));
+        assertThat(HttpStatusTags.status(599), is(Tag.of("status", "599")));
+    }
+
+    @Test
+    public void testStatusInRangeReturnsSameInstance() {
+        assertThat(HttpStatusTags.status(404), is(sameInstance(HttpStatusTags.status(404))));
+    }
+
+    @Test
+    public void testStatusOutOfRange() {
+        assertThat(HttpStatusTags.status(99), is(Tag.of("status", "99")));
+        assertThat(HttpStatusTags.status(600), is(Tag.of("status", "600")));
+        assertThat(HttpStatusTags.status(-1), is(Tag.of("status", "-1")));
+    }
+
+    @Test
+    public void testStatusOutOfRangeIsCached() {
+        assertThat(HttpStatusTags.status(999), is(sameInstance(HttpStatusTags.status(999))));
+    }
+
+    @Test
+    public void testOutcome() {
+        assertThat(HttpStatusTags.outcome(99), is(Tag.of("outcome", "UNKNOWN")));
+        assertThat(HttpStatusTags.outcome(100), is(Tag.of("outcome", "INFORMATION")));
+        assertThat(HttpStatusTags.outcome(299), is(Tag.of("outcome", "SUCCESS")));
+        assertThat(HttpStatusTags.outcome(302), is(Tag.of("outcome", "REDIRECTION")));
+        assertThat(HttpStatusTags.outcome(404), is(Tag.of("outcome", "CLIENT_ERROR")));
+        assertThat(HttpStatusTags.outcome(599), is(Tag.of("outcome", "SERVER_ERROR")));
+        assertThat(HttpStatusTags.outcome(600), is(Tag.of("outcome", "UNKNOWN")));
+    }
+}
@@ -0,0 +1,102 @@
+package nablarch.integration.micrometer.instrument.http;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * {@link UriPatternResolver}の単体テスト。
+ * @author Tanaka Tomoyuki
+ */
+public class UriPatternResolverTest {
+    private final UriPatternResolver sut = new UriPatternResolver(
+            List.of("/users/{id}/edit", "/users/{id}", "/projects/:projectId/members", "/static/*", "/"));
+
+    @Test
+    public void testResolveMatchedPattern() {
+        assertThat(sut.resolve(null, "/users/123"), is("/users/{id}"));
+        assertThat(sut.resolve(null, "/users/123/edit"), is("/users/{id}/edit"));
+        assertThat(sut.resolve(null, "/projects/10/members"), is("/projects/:projectId/members"));
+        assertThat(sut.resolve(null, "/static/app.js"), is("/static/*"));
+        assertThat(sut.resolve(null, "/"), is("/"));
+    }
+
+    @Test
+    public void testIgnoreQueryString() {
+        assertThat(sut.resolve(null, "/users/123?mode=full"), is("/users/{id}"));
+    }
+
+    @Test
+    public void testResolveUnknownIfNotMatched() {
+        assertThat(sut.resolve(null, "/users"), is(UriPatternResolver.UNKNOWN));
+        assertThat(sut.resolve(null, "/users/123/delete"), is(UriPatternResolver.UNKNOWN));
+        assertThat(sut.resolve(null, "/static/js/app.js"), is(UriPatternResolver.UNKNOWN));
+        assertThat(sut.resolve(null, null), is(UriPatternResolver.UNKNOWN));
+    }
+
+    @Test
+    public void testLiteralSegmentIsNotTreatedAsRegex() {
+        UriPatternResolver sut = new UriPatternResolver(List.of("/api/v1.0/items"));
+
+        assertThat(sut.resolve(null, "/api/v1.0/items"), is("/api/v1.0/items"));
+        assertThat(sut.resolve(null, "/api/v1x0/items"), is(UriPatternResolver.UNKNOWN));
+    }
+
+    @Test
+    public void testResolveWithMethod() throws Exception {
+        Method show = Object.class.getMethod("toString");
+
+        assertThat(sut.resolve(show, "/users/1"), is("/users/{id}"));
+        assertThat(sut.resolve(show, "/users/2"), is("/users/{id}"));
+        assertThat(sut.resolve(show, "/users/2?mode=full"), is("/users/{id}"));
+    }
+
+    @Test
+    public void testResolveOtherPatternWithSameMethod() throws Exception {
+        Method action = Object.class.getMethod("toString");
+
+        assertThat(sut.resolve(action, "/users/1"), is("/users/{id}"));
+        assertThat(sut.resolve(action, "/users/1/edit"), is("/users/{id}/edit"));
+        assertThat(sut.resolve(action, "/users/1"), is("/users/{id}"));
+        assertThat(sut.resolve(action, "/users/1/edit"), is("/users/{id}/edit"));
+        assertThat(sut.resolve(action, "/unknown"), is(UriPatternResolver.UNKNOWN));
+    }
+
+    @Test
+    public void testConfiguredOrderTakesPrecedenceOverCachedPattern() throws Exception {
+        UriPatternResolver sut = new UriPatternResolver(List.of("/users/new", "/users/{id}", "/users/{id}/edit"));
+        Method action = Object.class.getMethod("toString");
+
+        assertThat(sut.resolve(action, "/users/1"), is("/users/{id}"));
+        assertThat(sut.resolve(action, "/users/new"), is("/users/new"));
+        assertThat(sut.resolve(action, "/users/2"), is("/users/{id}"));
+        assertThat(sut.resolve(action, "/users/new"), is("/users/new"));
+        assertThat(sut.resolve(action, "/users/1/edit"), is("/users/{id}/edit"));
+    }
+
+    @Test
+    public void testPathCacheWithoutMethodIsBounded() {
+        for (int i = 0; i < UriPatternResolver.MAX_PATH_CACHE_SIZE + 10; i++) {
+            assertThat(sut.resolve(null, "/users/" + i), is("/users/{id}"));
+        }
+        assertThat(sut.pathCacheSize(), is(UriPatternResolver.MAX_PATH_CACHE_SIZE));
+        assertThat(sut.resolve(null, "/users/" + UriPatternResolver.MAX_PATH_CACHE_SIZE + 5), is("/users/{id}"));
+        assertThat(sut.resolve(null, "/nothing"), is(UriPatternResolver.UNKNOWN));
+        assertThat(sut.resolve(null, "/users/1"), is("/users/{id}"));
+    }
+
+    @Test
+    public void testResolvePerMethod() throws Exception {
+        Method edit = Object.class.getMethod("toString");
+        Method show = Object.class.getMethod("hashCode");
+
+        assertThat(sut.resolve(edit, "/users/1/edit"), is("/users/{id}/edit"));
+        assertThat(sut.resolve(show, "/users/1"), is("/users/{id}"));
+        assertThat(sut.resolve(edit, "/users/2/edit"), is("/users/{id}/edit"));
+        assertThat(sut.resolve(show, "/users/2"), is("/users/{id}"));
+    }
+}